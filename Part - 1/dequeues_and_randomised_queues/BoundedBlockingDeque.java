@@ -0,0 +1,352 @@
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * Thread-safe {@link Deque} of bounded capacity, for handing items from
+ * producer threads to consumer threads. Adding to a full deque waits for room
+ * and removing from an empty one waits for an item, so producers cannot run
+ * ahead of consumers by more than the capacity.
+ * </p>
+ * <p>
+ * The items live in a circular array allocated once at the capacity, so adding
+ * and removing allocate nothing. One lock guards the deque, with one condition
+ * for waiting until it is not empty and one for waiting until it is not full.
+ * {@link #drainTo(Collection, int)} moves a batch of items under a single
+ * acquisition of the lock.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class BoundedBlockingDeque<Item> {
+
+    private final Item[] itemArray;
+    // Index of the first item in the array.
+    private int firstIndex = 0;
+    private int size = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    public BoundedBlockingDeque(int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity passed");
+        }
+
+        itemArray = (Item[]) new Object[capacity];
+    }
+
+    public int capacity() {
+        return itemArray.length;
+    }
+
+    public int size() {
+
+        lock.lock();
+        try {
+            return size;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Add an item at the front, waiting for room if the deque is full.
+     *
+     * @param item item to add.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void putFirst(Item item) throws InterruptedException {
+
+        checkItem(item);
+
+        lock.lockInterruptibly();
+        try {
+            while (size == itemArray.length) {
+                notFull.await();
+            }
+            insertFirst(item);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add an item at the back, waiting for room if the deque is full.
+     *
+     * @param item item to add.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void putLast(Item item) throws InterruptedException {
+
+        checkItem(item);
+
+        lock.lockInterruptibly();
+        try {
+            while (size == itemArray.length) {
+                notFull.await();
+            }
+            insertLast(item);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add an item at the front, waiting up to the timeout for room.
+     *
+     * @param item item to add.
+     * @param timeout longest time to wait.
+     * @param unit unit of the timeout.
+     * @return true if the item was added, false if the deque stayed full.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean offerFirst(Item item, long timeout, TimeUnit unit) throws InterruptedException {
+
+        checkItem(item);
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == itemArray.length) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insertFirst(item);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add an item at the back, waiting up to the timeout for room.
+     *
+     * @param item item to add.
+     * @param timeout longest time to wait.
+     * @param unit unit of the timeout.
+     * @return true if the item was added, false if the deque stayed full.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean offerLast(Item item, long timeout, TimeUnit unit) throws InterruptedException {
+
+        checkItem(item);
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == itemArray.length) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insertLast(item);
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the item at the front, waiting for one if the deque is empty.
+     *
+     * @return the first item.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Item takeFirst() throws InterruptedException {
+
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return extractFirst();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the item at the back, waiting for one if the deque is empty.
+     *
+     * @return the last item.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Item takeLast() throws InterruptedException {
+
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return extractLast();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the item at the front, waiting up to the timeout for one.
+     *
+     * @param timeout longest time to wait.
+     * @param unit unit of the timeout.
+     * @return the first item, or null if the deque stayed empty.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Item pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return extractFirst();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the item at the back, waiting up to the timeout for one.
+     *
+     * @param timeout longest time to wait.
+     * @param unit unit of the timeout.
+     * @return the last item, or null if the deque stayed empty.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Item pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return extractLast();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove up to max items from the front, in order, and add them to the
+     * collection, all under one acquisition of the lock. Does not wait.
+     *
+     * @param collection collection to add the items to.
+     * @param max largest number of items to move, none if not positive.
+     * @return number of items moved.
+     */
+    public int drainTo(Collection<? super Item> collection, int max) {
+
+        if (collection == null) {
+            throw new NullPointerException("Collection was null");
+        }
+        if (max <= 0) {
+            return 0;
+        }
+
+        int count = 0;
+        lock.lock();
+        try {
+            // Remove each item once it is added, so an add that throws leaves the deque consistent.
+            while (count < max && size > 0) {
+                collection.add(itemArray[firstIndex]);
+                itemArray[firstIndex] = null;
+                firstIndex = next(firstIndex);
+                size--;
+                count++;
+            }
+            return count;
+        }
+        finally {
+            if (count > 0) {
+                notFull.signalAll();
+            }
+            lock.unlock();
+        }
+    }
+
+    /* Helper methods. The insert and extract methods are called holding the lock. */
+    private void checkItem(Item item) {
+
+        if (item == null) {
+            throw new NullPointerException("Item was null");
+        }
+    }
+
+    private int next(int index) {
+        return index + 1 == itemArray.length ? 0 : index + 1;
+    }
+
+    private void insertFirst(Item item) {
+
+        firstIndex = firstIndex == 0 ? itemArray.length - 1 : firstIndex - 1;
+        itemArray[firstIndex] = item;
+        size++;
+        notEmpty.signal();
+    }
+
+    private void insertLast(Item item) {
+
+        int lastIndex = firstIndex + size;
+        if (lastIndex >= itemArray.length) {
+            lastIndex -= itemArray.length;
+        }
+        itemArray[lastIndex] = item;
+        size++;
+        notEmpty.signal();
+    }
+
+    private Item extractFirst() {
+
+        Item item = itemArray[firstIndex];
+        // Clear the slot so the deque does not hold on to the item.
+        itemArray[firstIndex] = null;
+        firstIndex = next(firstIndex);
+        size--;
+        notFull.signal();
+        return item;
+    }
+
+    private Item extractLast() {
+
+        int lastIndex = firstIndex + size - 1;
+        if (lastIndex >= itemArray.length) {
+            lastIndex -= itemArray.length;
+        }
+        Item item = itemArray[lastIndex];
+        // Clear the slot so the deque does not hold on to the item.
+        itemArray[lastIndex] = null;
+        size--;
+        notFull.signal();
+        return item;
+    }
+
+}
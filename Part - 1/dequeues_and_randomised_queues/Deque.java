@@ -2,15 +2,32 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
+ * <p>
+ * Double-ended queue on a circular array. The items are stored between
+ * the first index and the first index + size, wrapping around the end of
+ * the array. The length of the array is always a power of two, so wrapping
+ * is a mask rather than a division.
+ * </p>
+ * <p>
+ * The array doubles when it is full and halves when it falls to a quarter
+ * full, so adding and removing take amortised constant time, and a deque
+ * whose size stays within a factor of four allocates nothing.
+ * </p>
+ *
  * @author Rabboni Rabi
  */
 public class Deque<Item> implements Iterable<Item> {
 
-    private Node firstNode = null;
-    private Node lastNode = null;
+    // Smallest length of the array, below which it is never shrunk.
+    private static final int MIN_CAPACITY = 8;
+
+    private Item[] itemArray;
+    // Index of the first item in the array.
+    private int firstIndex = 0;
     private int size = 0;
 
     public Deque() {
+        itemArray = (Item[]) new Object[MIN_CAPACITY];
     }
 
     public boolean isEmpty() {
@@ -32,24 +49,13 @@ public class Deque<Item> implements Iterable<Item> {
             throw new NullPointerException("Item was null");
         }
 
-        Node newLast =  new Node();
-        newLast.item = item;
-        newLast.next = null;
-
-        if (size != 0) {
-            Node oldLast = lastNode;
-            newLast.previous = oldLast;
-            oldLast.next = newLast;
-        }
-        else { // This is the first node in the deque. So, first node and last node are the same.
-            newLast.previous = null;
-            firstNode = newLast;
+        if (size == itemArray.length) {
+            resize(2 * itemArray.length);
         }
 
-        // update the first node
-        lastNode =  newLast;
+        itemArray[(firstIndex + size) & (itemArray.length - 1)] = item;
 
-        // Increment the number of nodes in the deque counter.
+        // Increment the number of items in the deque counter.
         size++;
     }
 
@@ -59,24 +65,15 @@ public class Deque<Item> implements Iterable<Item> {
             throw new NullPointerException("Item was null");
         }
 
-        Node newFirst = new Node();
-        newFirst.item = item;
-        newFirst.previous = null;
-
-        if (size != 0) {
-            Node oldFirst = firstNode;
-            newFirst.next = oldFirst;
-            oldFirst.previous = newFirst;
-        }
-        else { // This is the first node in the deque. So, first node and last node are the same.
-            newFirst.next = null;
-            lastNode = newFirst;
+        if (size == itemArray.length) {
+            resize(2 * itemArray.length);
         }
 
-        // update the last node
-        firstNode = newFirst;
+        // The first index moves one back, wrapping to the end of the array.
+        firstIndex = (firstIndex - 1) & (itemArray.length - 1);
+        itemArray[firstIndex] = item;
 
-        // Increment the number of nodes in the deque counter.
+        // Increment the number of items in the deque counter.
         size++;
 
     }
@@ -86,33 +83,17 @@ public class Deque<Item> implements Iterable<Item> {
         if (size == 0) {
             throw new NoSuchElementException("Cannot remove from an empty queue");
         }
-        else if (size == 1) {
-            Node oldLast = lastNode;
-            lastNode = null;
-            firstNode = null;
-            // Update size after removing the last item in the deque.
-            size = 0;
-
-            return oldLast.item;
-        }
-        else {
-            Node oldLast = lastNode;
-            Node newLast = lastNode.previous;
-            newLast.next = null;
 
-            lastNode = newLast;
+        int lastIndex = (firstIndex + size - 1) & (itemArray.length - 1);
+        Item item = itemArray[lastIndex];
+        // Clear the slot so the deque does not hold on to the item.
+        itemArray[lastIndex] = null;
 
-            // Decrement the number of nodes in the deque counter.
-            size = size - 1;
-
-            // If size of the deque has become 1, set the last node to be equal to the first
-            if (size == 1) {
-                firstNode = lastNode;
-            }
-
-            return oldLast.item;
-        }
+        // Decrement the number of items in the deque counter.
+        size--;
+        shrinkIfSparse();
 
+        return item;
     }
 
     public Item removeFirst() {
@@ -120,34 +101,17 @@ public class Deque<Item> implements Iterable<Item> {
         if (size == 0) {
             throw new NoSuchElementException("Cannot remove from an empty queue");
         }
-        else if (size == 1) {
-            Node oldFirst = firstNode;
-            lastNode = null;
-            firstNode = null;
-
-            // Update size after removing the last item in the deque.
-            size = 0;
-
-            return oldFirst.item;
-        }
-        else {
-            Node oldFirst = firstNode;
-            Node newFirst = firstNode.next;
-            newFirst.previous = null;
 
-            // Decrement the number of nodes in the deque counter.
-            size = size - 1;
+        Item item = itemArray[firstIndex];
+        // Clear the slot so the deque does not hold on to the item.
+        itemArray[firstIndex] = null;
+        firstIndex = (firstIndex + 1) & (itemArray.length - 1);
 
-            firstNode = newFirst;
-
-            // If the size of the deque has become 1, set the first node to be equal to the last.
-            if (size == 1) {
-                lastNode = firstNode;
-            }
-            return oldFirst.item;
-
-        }
+        // Decrement the number of items in the deque counter.
+        size--;
+        shrinkIfSparse();
 
+        return item;
     }
 
     @Override
@@ -155,37 +119,55 @@ public class Deque<Item> implements Iterable<Item> {
         return new DequeIterator();
     }
 
+    /* Helper methods */
 
-    /**
-     * Inner class - Node
+    /*
+     * Halve the array once it is a quarter full, keeping it at least MIN_CAPACITY long.
      */
-    private class Node {
-        private Item item;
-        private Node next;
-        private Node previous;
+    private void shrinkIfSparse() {
+
+        if (itemArray.length > MIN_CAPACITY && size <= itemArray.length / 4) {
+            resize(itemArray.length / 2);
+        }
+    }
+
+    /*
+     * Copy the items to a new array of the given capacity, unwrapping
+     * them so the first item is at index 0.
+     */
+    private void resize(int capacity) {
+
+        Item[] newItemArray = (Item[]) new Object[capacity];
+
+        int firstPart = Math.min(size, itemArray.length - firstIndex);
+        System.arraycopy(itemArray, firstIndex, newItemArray, 0, firstPart);
+        System.arraycopy(itemArray, 0, newItemArray, firstPart, size - firstPart);
+
+        itemArray = newItemArray;
+        firstIndex = 0;
     }
 
     /**
-     * Inner class - Deque iterator
+     * Inner class - Deque iterator, walking the array from the first item to the last.
      */
     private class DequeIterator implements Iterator<Item> {
 
-        private Node current = firstNode;
+        private int i = 0;
 
         @Override
         public boolean hasNext() {
-            return current != null;
+            return i < size;
         }
 
         @Override
         public Item next() {
 
-            if (current == null) {
+            if (i >= size) {
                 throw new NoSuchElementException("No more elements in iteration");
             }
 
-            Item item = current.item;
-            current = current.next;
+            Item item = itemArray[(firstIndex + i) & (itemArray.length - 1)];
+            i++;
             return item;
         }
 
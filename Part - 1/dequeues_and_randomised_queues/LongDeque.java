@@ -0,0 +1,207 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * <p>
+ * {@link Deque} of long values, stored unboxed in a circular long array that
+ * grows and shrinks the same way. Iterating with {@link PrimitiveIterator.OfLong#nextLong()}
+ * and the bulk {@link #addAll(long[])} and {@link #drainTo(long[])} never box a value.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class LongDeque implements Iterable<Long> {
+
+    // Smallest length of the array, below which it is never shrunk.
+    private static final int MIN_CAPACITY = 8;
+    // Largest power of two an array can be long.
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] valueArray;
+    // Index of the first value in the array.
+    private int firstIndex = 0;
+    private int size = 0;
+
+    public LongDeque() {
+        valueArray = new long[MIN_CAPACITY];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addLast(long value) {
+
+        if (size == valueArray.length) {
+            resize(2 * valueArray.length);
+        }
+
+        valueArray[(firstIndex + size) & (valueArray.length - 1)] = value;
+        size++;
+    }
+
+    public void addFirst(long value) {
+
+        if (size == valueArray.length) {
+            resize(2 * valueArray.length);
+        }
+
+        firstIndex = (firstIndex - 1) & (valueArray.length - 1);
+        valueArray[firstIndex] = value;
+        size++;
+    }
+
+    public long removeLast() {
+
+        if (size == 0) {
+            throw new NoSuchElementException("Cannot remove from an empty queue");
+        }
+
+        long value = valueArray[(firstIndex + size - 1) & (valueArray.length - 1)];
+        size--;
+        shrinkIfSparse();
+
+        return value;
+    }
+
+    public long removeFirst() {
+
+        if (size == 0) {
+            throw new NoSuchElementException("Cannot remove from an empty queue");
+        }
+
+        long value = valueArray[firstIndex];
+        firstIndex = (firstIndex + 1) & (valueArray.length - 1);
+        size--;
+        shrinkIfSparse();
+
+        return value;
+    }
+
+    /**
+     * Add the values to the back of the deque, in order.
+     *
+     * @param values values to add.
+     */
+    public void addAll(long[] values) {
+
+        if (values == null) {
+            throw new NullPointerException("Values were null");
+        }
+        if (values.length > MAX_CAPACITY - size) {
+            throw new IllegalArgumentException("Too many values for one deque");
+        }
+
+        if (size + values.length > valueArray.length) {
+            int capacity = valueArray.length;
+            while (capacity < size + values.length) {
+                capacity *= 2;
+            }
+            resize(capacity);
+        }
+
+        // The free slots start after the last value and may wrap around the end of the array.
+        int start = (firstIndex + size) & (valueArray.length - 1);
+        int firstPart = Math.min(values.length, valueArray.length - start);
+        System.arraycopy(values, 0, valueArray, start, firstPart);
+        System.arraycopy(values, firstPart, valueArray, 0, values.length - firstPart);
+        size += values.length;
+    }
+
+    /**
+     * Remove values from the front of the deque into the array, until the
+     * array is full or the deque is empty.
+     *
+     * @param out array to fill from index 0.
+     * @return number of values removed.
+     */
+    public int drainTo(long[] out) {
+
+        if (out == null) {
+            throw new NullPointerException("Array was null");
+        }
+
+        int count = Math.min(size, out.length);
+        int firstPart = Math.min(count, valueArray.length - firstIndex);
+        System.arraycopy(valueArray, firstIndex, out, 0, firstPart);
+        System.arraycopy(valueArray, 0, out, firstPart, count - firstPart);
+
+        firstIndex = (firstIndex + count) & (valueArray.length - 1);
+        size -= count;
+        shrinkIfSparse();
+
+        return count;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongDequeIterator();
+    }
+
+    /* Helper methods */
+
+    /*
+     * Halve the array while it is at most a quarter full, keeping it at least MIN_CAPACITY long.
+     */
+    private void shrinkIfSparse() {
+
+        int capacity = valueArray.length;
+        while (capacity > MIN_CAPACITY && size <= capacity / 4) {
+            capacity /= 2;
+        }
+        if (capacity != valueArray.length) {
+            resize(capacity);
+        }
+    }
+
+    /*
+     * Copy the values to a new array of the given capacity, unwrapping
+     * them so the first value is at index 0.
+     */
+    private void resize(int capacity) {
+
+        long[] newValueArray = new long[capacity];
+
+        int firstPart = Math.min(size, valueArray.length - firstIndex);
+        System.arraycopy(valueArray, firstIndex, newValueArray, 0, firstPart);
+        System.arraycopy(valueArray, 0, newValueArray, firstPart, size - firstPart);
+
+        valueArray = newValueArray;
+        firstIndex = 0;
+    }
+
+    /**
+     * Inner class - Long deque iterator, walking the array from the first value to the last.
+     */
+    private class LongDequeIterator implements PrimitiveIterator.OfLong {
+
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+            return i < size;
+        }
+
+        @Override
+        public long nextLong() {
+
+            if (i >= size) {
+                throw new NoSuchElementException("No more elements in iteration");
+            }
+
+            long value = valueArray[(firstIndex + i) & (valueArray.length - 1)];
+            i++;
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Calling remove method is not supported");
+        }
+    }
+
+}
@@ -1,17 +1,54 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdRandom;
 
 /**
+ * <p>
+ * Prints k of the strings read from standard input, chosen uniformly at random.
+ * </p>
+ * <p>
+ * With --stream as a second argument, and optionally a file to read instead of
+ * standard input, it keeps only k strings in memory. They are a reservoir sample
+ * drawn with Li's Algorithm L: after the first k strings, the number of strings
+ * to skip before the next one that enters the reservoir is drawn from its
+ * geometric distribution, so skipped strings cost no random draws and are
+ * never decoded. The input is read through a buffered channel and split on
+ * whitespace bytes.
+ * </p>
+ *
  * @author Rabboni Rabi
  */
 public class Permutation {
 
-    public static void main(String[] args) {
+    private static final int READ_BUFFER_BYTES = 1 << 16;
 
-        RandomizedQueue<String> randomizedQueue = new RandomizedQueue<String>();
+    public static void main(String[] args) throws IOException {
 
         // Number of items to print.
         int n = Integer.parseInt(args[0]);
 
+        if (args.length > 1 && args[1].equals("--stream")) {
+            ReadableByteChannel channel = args.length > 2
+                    ? new FileInputStream(args[2]).getChannel()
+                    : Channels.newChannel(System.in);
+            try {
+                printReservoirSample(n, new TokenReader(channel));
+            }
+            finally {
+                channel.close();
+            }
+            return;
+        }
+
+        RandomizedQueue<String> randomizedQueue = new RandomizedQueue<String>();
+
         // Read the input and add the items to the randomized queue.
         while (!StdIn.isEmpty()) {
             String item = StdIn.readString();
@@ -24,4 +61,178 @@ public class Permutation {
         }
 
     }
+
+    /* Helper methods */
+
+    /*
+     * Print k strings of the input sampled with Algorithm L. The reservoir holds a
+     * uniform sample but not in a uniform order, so it goes through a randomized
+     * queue on the way out.
+     */
+    private static void printReservoirSample(int k, TokenReader tokenReader) throws IOException {
+
+        if (k <= 0) {
+            return;
+        }
+
+        String[] reservoir = new String[k];
+        int filled = 0;
+        while (filled < k) {
+            String token = tokenReader.next();
+            if (token == null) {
+                break;
+            }
+            reservoir[filled++] = token;
+        }
+        if (filled < k) {
+            throw new IllegalArgumentException("Input has only " + filled + " strings, fewer than " + k);
+        }
+
+        // w is the largest of k uniforms, the threshold a string must beat to enter the reservoir.
+        double w = Math.exp(Math.log(randomOpenUnit()) / k);
+        while (true) {
+            long skip = (long) Math.floor(Math.log(randomOpenUnit()) / Math.log(1 - w));
+            if (!tokenReader.skip(skip)) {
+                break;
+            }
+            String token = tokenReader.next();
+            if (token == null) {
+                break;
+            }
+            reservoir[StdRandom.uniform(k)] = token;
+            w *= Math.exp(Math.log(randomOpenUnit()) / k);
+        }
+
+        RandomizedQueue<String> randomizedQueue = new RandomizedQueue<String>();
+        randomizedQueue.enqueueAll(reservoir);
+        for (String item : randomizedQueue.dequeue(k)) {
+            System.out.println(item);
+        }
+    }
+
+    /*
+     * Uniform random number in (0, 1], whose logarithm is finite.
+     */
+    private static double randomOpenUnit() {
+        return 1.0 - StdRandom.uniform();
+    }
+
+    /**
+     * Inner class - Reads whitespace separated tokens from a channel through
+     * one reusable byte buffer. Tokens are only decoded into strings when asked for.
+     */
+    private static class TokenReader {
+
+        private final ReadableByteChannel channel;
+        private final byte[] bytes = new byte[READ_BUFFER_BYTES];
+        private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        // Next byte to look at and end of the bytes read into the buffer.
+        private int position = 0;
+        private int limit = 0;
+        // Bytes of the token being read, which may span several reads.
+        private byte[] tokenBytes = new byte[64];
+        private boolean endOfInput = false;
+
+        TokenReader(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /*
+         * Read the next token, or return null at the end of the input.
+         */
+        String next() throws IOException {
+
+            if (!skipWhitespace()) {
+                return null;
+            }
+
+            int length = 0;
+            while (true) {
+                int start = position;
+                while (position < limit && !isWhitespace(bytes[position])) {
+                    position++;
+                }
+                int count = position - start;
+                if (length + count > tokenBytes.length) {
+                    tokenBytes = Arrays.copyOf(tokenBytes, Math.max(2 * tokenBytes.length, length + count));
+                }
+                System.arraycopy(bytes, start, tokenBytes, length, count);
+                length += count;
+
+                if (position < limit || !fill()) {
+                    return new String(tokenBytes, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        /*
+         * Skip the given number of tokens without decoding them.
+         * Returns false if the input ended first.
+         */
+        boolean skip(long count) throws IOException {
+
+            for (long i = 0; i < count; i++) {
+                if (!skipWhitespace()) {
+                    return false;
+                }
+                // Skip the bytes of the token, which may continue into the next read.
+                while (true) {
+                    while (position < limit && !isWhitespace(bytes[position])) {
+                        position++;
+                    }
+                    if (position < limit || !fill()) {
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Move to the first byte of the next token. Returns false at the end of the input.
+         */
+        private boolean skipWhitespace() throws IOException {
+
+            while (true) {
+                while (position < limit) {
+                    if (!isWhitespace(bytes[position])) {
+                        return true;
+                    }
+                    position++;
+                }
+                if (!fill()) {
+                    return false;
+                }
+            }
+        }
+
+        /*
+         * Refill the buffer from the channel once every byte in it has been
+         * looked at. Returns false at the end of the input.
+         */
+        private boolean fill() throws IOException {
+
+            if (endOfInput) {
+                return false;
+            }
+            buffer.clear();
+            int read = 0;
+            while (read == 0) {
+                read = channel.read(buffer);
+            }
+            if (read < 0) {
+                endOfInput = true;
+                position = 0;
+                limit = 0;
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+        }
+    }
 }
@@ -1,4 +1,7 @@
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import edu.princeton.cs.algs4.StdRandom;
@@ -8,6 +11,9 @@ import edu.princeton.cs.algs4.StdRandom;
  */
 public class RandomizedQueue<Item> implements Iterable<Item> {
 
+    // Starting length of the hash table of each iterator, a power of two.
+    private static final int INITIAL_TABLE_SIZE = 8;
+
     private Item[] itemArray;
     private int numberOfElements = 0;
     private int nextIndex = 0;
@@ -87,6 +93,109 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return item;
     }
 
+    /**
+     * Enqueue every item of the array, growing the queue at most once.
+     *
+     * @param items items to enqueue.
+     */
+    public void enqueueAll(Item[] items) {
+
+        if (items == null) {
+            throw new NullPointerException("Items were null");
+        }
+        for (Item item : items) {
+            if (item == null) {
+                throw new NullPointerException("Item was null");
+            }
+        }
+
+        ensureCapacity(numberOfElements + items.length);
+        System.arraycopy(items, 0, itemArray, nextIndex, items.length);
+        nextIndex += items.length;
+        numberOfElements += items.length;
+    }
+
+    /**
+     * Enqueue every item of the collection, growing the queue at most once.
+     *
+     * @param items items to enqueue.
+     */
+    public void enqueueAll(Collection<? extends Item> items) {
+
+        if (items == null) {
+            throw new NullPointerException("Items were null");
+        }
+        for (Item item : items) {
+            if (item == null) {
+                throw new NullPointerException("Item was null");
+            }
+        }
+
+        ensureCapacity(numberOfElements + items.size());
+        for (Item item : items) {
+            itemArray[nextIndex] = item;
+            nextIndex++;
+        }
+        numberOfElements = nextIndex;
+    }
+
+    /**
+     * Dequeue k random items at once, as {@link #dequeueInto(Object[])} does
+     * with a new array of k items, returned as a list view of the array.
+     *
+     * @param k number of items to dequeue.
+     * @return the items in the order they were drawn.
+     */
+    public List<Item> dequeue(int k) {
+
+        if (k < 0 || k > numberOfElements) {
+            throw new IllegalArgumentException("Cannot dequeue " + k + " items from a queue of " + numberOfElements);
+        }
+
+        Item[] items = (Item[]) new Object[k];
+        dequeueInto(items);
+        return Arrays.asList(items);
+    }
+
+    /**
+     * Dequeue as many random items as the array holds, writing them to it.
+     * Each is drawn as by {@link #dequeue()} and the queue shrinks at most once
+     * at the end. Nothing is allocated unless the queue shrinks.
+     *
+     * @param items array to fill with the items in the order they were drawn.
+     */
+    public void dequeueInto(Item[] items) {
+
+        if (items == null) {
+            throw new NullPointerException("Items were null");
+        }
+        int k = items.length;
+        if (k > numberOfElements) {
+            throw new IllegalArgumentException("Cannot dequeue " + k + " items from a queue of " + numberOfElements);
+        }
+
+        for (int i = 0; i < k; i++) {
+            // Swap a random item to the end of the live items and take it from there.
+            int randomIndex = StdRandom.uniform(nextIndex);
+            items[i] = itemArray[randomIndex];
+            itemArray[randomIndex] = itemArray[nextIndex - 1];
+            itemArray[nextIndex - 1] = null;
+            nextIndex--;
+        }
+        numberOfElements -= k;
+
+        // Halve the array for as long as it is no more than a quarter full.
+        if (numberOfElements > 0) {
+            int capacity = itemArray.length;
+            while (numberOfElements <= capacity / 4) {
+                capacity /= 2;
+            }
+            if (capacity != itemArray.length) {
+                resize(capacity);
+            }
+        }
+    }
+
     public Item sample() {
 
         if (numberOfElements == 0) {
@@ -106,11 +215,136 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     }
 
 
+    /**
+     * Sample k distinct random items without removing them, as
+     * {@link #sampleDistinctInto(Object[])} does with a new array of k items,
+     * returned as a list view of the array.
+     *
+     * @param k number of items to sample.
+     * @return the items in the order they were drawn.
+     */
+    public List<Item> sampleDistinct(int k) {
+
+        if (k < 0 || k > numberOfElements) {
+            throw new IllegalArgumentException("Cannot sample " + k + " items from a queue of " + numberOfElements);
+        }
+
+        Item[] items = (Item[]) new Object[k];
+        sampleDistinctInto(items);
+        return Arrays.asList(items);
+    }
+
+    /**
+     * Sample as many distinct random items as the array holds without removing
+     * them, writing them to it. The first k steps of a Fisher-Yates shuffle bring
+     * the sample to the front of the item array, and the swaps are then undone in
+     * reverse, so every item is back at its index and iterators walking the queue
+     * are not disturbed. The random index of each step is a function of a seed and
+     * the step, so the swaps are drawn again to undo them rather than stored, and
+     * nothing is allocated.
+     *
+     * @param items array to fill with the items in the order they were drawn.
+     */
+    public void sampleDistinctInto(Item[] items) {
+
+        if (items == null) {
+            throw new NullPointerException("Items were null");
+        }
+        int k = items.length;
+        if (k > numberOfElements) {
+            throw new IllegalArgumentException("Cannot sample " + k + " items from a queue of " + numberOfElements);
+        }
+
+        long seed = ((long) StdRandom.uniform(Integer.MAX_VALUE) << 31) ^ StdRandom.uniform(Integer.MAX_VALUE);
+        for (int i = 0; i < k; i++) {
+            swap(i, i + randomIndexOfStep(seed, i, nextIndex - i));
+            items[i] = itemArray[i];
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            swap(i, i + randomIndexOfStep(seed, i, nextIndex - i));
+        }
+    }
+
     @Override
     public Iterator<Item> iterator() {
         return new RandomizedQueueIterator();
     }
 
+    /**
+     * Unit test: iterates over a queue of n items, sampling 3n/4 of them half way
+     * through, and checks that the sample is distinct and that the iteration still
+     * visits every item exactly once.
+     *
+     * @param args number of items.
+     */
+    public static void main(String[] args) {
+
+        int n = Integer.parseInt(args[0]);
+
+        RandomizedQueue<Integer> queue = new RandomizedQueue<Integer>();
+        for (int i = 0; i < n; i++) {
+            queue.enqueue(i);
+        }
+
+        boolean[] visited = new boolean[n];
+        int numberVisited = 0;
+        for (int item : queue) {
+            if (visited[item]) {
+                throw new IllegalStateException("Item " + item + " was visited twice");
+            }
+            visited[item] = true;
+            numberVisited++;
+
+            if (numberVisited == n / 2) {
+                boolean[] sampled = new boolean[n];
+                for (int sample : queue.sampleDistinct(3 * n / 4)) {
+                    if (sampled[sample]) {
+                        throw new IllegalStateException("Item " + sample + " was sampled twice");
+                    }
+                    sampled[sample] = true;
+                }
+            }
+        }
+        if (numberVisited != n) {
+            throw new IllegalStateException("Visited " + numberVisited + " of " + n + " items");
+        }
+
+        System.out.println("every item visited once across sampleDistinct(" + 3 * n / 4 + ")");
+    }
+
+    /*
+     * Helper method to draw the random index, below bound, of the given step of a
+     * shuffle: the step counter is added to the seed and mixed by the finaliser of
+     * SplitMix64, and the top 31 bits are scaled down to the bound.
+     */
+    private static int randomIndexOfStep(long seed, int step, int bound) {
+
+        long z = seed + (step + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (int) (((z >>> 33) * bound) >>> 31);
+    }
+
+    /* Helper method to swap the items at two indices of itemArray. */
+    private void swap(int index, int otherIndex) {
+
+        Item item = itemArray[index];
+        itemArray[index] = itemArray[otherIndex];
+        itemArray[otherIndex] = item;
+    }
+
+
+    /* Helper method to grow the array, once, so it holds at least the given number of items. */
+    private void ensureCapacity(int capacity) {
+
+        if (itemArray == null) {
+            itemArray = (Item[]) new Object[Math.max(1, capacity)];
+        }
+        else if (capacity > itemArray.length) {
+            resize(Math.max(capacity, 2 * itemArray.length));
+        }
+    }
 
     /* Helper method to copy the contents of itemArray to new array
      * twice the length of the nextIndex itemArray. Changes reference
@@ -132,36 +366,110 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     }
 
     /**
-     * Inner class - Randomized queue iterator
+     * Inner class - Randomized queue iterator. It leaves the queue as it is and
+     * walks the items in an order of its own, drawn one step at a time by a
+     * Fisher-Yates shuffle of the item indices. Only the positions the shuffle has
+     * swapped are stored, in a small hash table from position to index, and a
+     * position missing from it still holds its own index. Creating an iterator
+     * takes constant time, and the table grows with the items visited.
      */
     private class RandomizedQueueIterator implements Iterator<Item> {
 
-        private int i = numberOfElements;
+        private final int size = numberOfElements;
+        private int i = 0;
+
+        // Open addressing table of the swapped positions, stored as position + 1 so 0 marks a free slot.
+        private int[] swappedPositions = new int[INITIAL_TABLE_SIZE];
+        private int[] swappedIndices = new int[INITIAL_TABLE_SIZE];
+        private int numberOfSwaps = 0;
 
         @Override
         public boolean hasNext() {
-            if (i == 0) {
-                return false;
-            }
-            return true;
+            return i < size;
         }
 
         @Override
         public Item next() {
 
-
-            if (i == 0) {
+            if (i == size) {
                 throw new NoSuchElementException("No items left in the queue");
             }
 
-            Item item = dequeue();
-            i--;
-            return item;
+            // Pick one of the positions not visited yet and swap it with position i.
+            // Position i is never looked at again, so only the other side is stored.
+            int randomPosition = i + StdRandom.uniform(size - i);
+            int index = indexAt(randomPosition);
+            if (randomPosition != i) {
+                putIndex(randomPosition, indexAt(i));
+            }
+            i++;
+
+            return itemArray[index];
         }
 
         @Override
         public void remove() {
             throw new UnsupportedOperationException("Calling remove method is not supported");
         }
+
+        private int indexAt(int position) {
+
+            int mask = swappedPositions.length - 1;
+            for (int slot = slotOf(position); swappedPositions[slot] != 0; slot = (slot + 1) & mask) {
+                if (swappedPositions[slot] == position + 1) {
+                    return swappedIndices[slot];
+                }
+            }
+            return position;
+        }
+
+        private void putIndex(int position, int index) {
+
+            // Keep the table at most half full, so probe runs stay short.
+            if (2 * (numberOfSwaps + 1) > swappedPositions.length) {
+                growTable();
+            }
+
+            int mask = swappedPositions.length - 1;
+            int slot = slotOf(position);
+            while (swappedPositions[slot] != 0 && swappedPositions[slot] != position + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (swappedPositions[slot] == 0) {
+                swappedPositions[slot] = position + 1;
+                numberOfSwaps++;
+            }
+            swappedIndices[slot] = index;
+        }
+
+        private void growTable() {
+
+            int[] oldPositions = swappedPositions;
+            int[] oldIndices = swappedIndices;
+            swappedPositions = new int[2 * oldPositions.length];
+            swappedIndices = new int[2 * oldIndices.length];
+
+            int mask = swappedPositions.length - 1;
+            for (int j = 0; j < oldPositions.length; j++) {
+                if (oldPositions[j] != 0) {
+                    int slot = slotOf(oldPositions[j] - 1);
+                    while (swappedPositions[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    swappedPositions[slot] = oldPositions[j];
+                    swappedIndices[slot] = oldIndices[j];
+                }
+            }
+        }
+
+        /*
+         * Slot of the table a position is looked for from, spreading consecutive
+         * positions over the table.
+         */
+        private int slotOf(int position) {
+
+            int h = position * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (swappedPositions.length - 1);
+        }
     }
 }
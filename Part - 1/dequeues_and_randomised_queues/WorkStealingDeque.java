@@ -0,0 +1,269 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Work-stealing deque of Chase and Lev. One thread, the owner, adds and
+ * removes items at the back of the deque as at the top of a stack. Any other
+ * thread can steal items from the front. Nothing is locked.
+ * </p>
+ * <p>
+ * The items live in a circular array between the indices top and bottom, which
+ * only ever grow. The owner alone writes bottom, so adding an item is a write of
+ * the slot and then of bottom. Thieves take the item at top by advancing top
+ * with a compare-and-swap. The owner only races the thieves for the last item,
+ * which it settles with the same compare-and-swap on top. When the array is full
+ * the owner copies the items into one twice as long. Thieves that still hold the
+ * old array read the same items from it.
+ * </p>
+ * <p>
+ * Thieves never write the array. A thief may stall between reading a slot and
+ * advancing top, and by then the owner may have filled the slot again, possibly
+ * with the same item. Only the owner clears the slots of the items it takes back.
+ * The slots of stolen items keep their items until the owner reuses them, so up
+ * to the capacity of the array of stolen items stay reachable.
+ * </p>
+ * <p>
+ * Only the owner thread may call {@link #addLast(Object)} and {@link #removeLast()}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class WorkStealingDeque<Item> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Index of the first item, advanced by thieves and by the owner taking the last item.
+    private final AtomicLong top = new AtomicLong(0);
+    // Index one past the last item, written by the owner only.
+    private volatile long bottom = 0;
+    private volatile CircularArray<Item> array = new CircularArray<>(INITIAL_CAPACITY);
+
+    public WorkStealingDeque() {
+    }
+
+    /**
+     * Number of items, which may be out of date by the time it returns
+     * if other threads are stealing.
+     *
+     * @return number of items.
+     */
+    public int size() {
+        return (int) Math.max(0, bottom - top.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Add an item at the back. Called by the owner thread only.
+     *
+     * @param item item to add.
+     */
+    public void addLast(Item item) {
+
+        if (item == null) {
+            throw new NullPointerException("Item was null");
+        }
+
+        long b = bottom;
+        long t = top.get();
+        CircularArray<Item> a = array;
+        if (b - t >= a.capacity() - 1) {
+            a = a.grow(t, b);
+            array = a;
+        }
+        a.set(b, item);
+        // Publishing the new bottom publishes the item to the thieves.
+        bottom = b + 1;
+    }
+
+    /**
+     * Remove the item at the back. Called by the owner thread only.
+     *
+     * @return the last item, or null if the deque is empty.
+     */
+    public Item removeLast() {
+
+        long b = bottom - 1;
+        CircularArray<Item> a = array;
+        // Claim the last slot before looking at top, so a thief either sees it claimed or is seen.
+        bottom = b;
+        long t = top.get();
+
+        if (t > b) {
+            // Empty: put bottom back.
+            bottom = b + 1;
+            return null;
+        }
+
+        Item item = a.get(b);
+        if (t == b) {
+            // Last item: race the thieves for it.
+            if (!top.compareAndSet(t, t + 1)) {
+                item = null;
+            }
+            bottom = b + 1;
+        }
+        if (item != null) {
+            // No thief can take index b any more, so the slot is the owner's to clear.
+            a.set(b, null);
+        }
+        return item;
+    }
+
+    /**
+     * Remove the item at the front. Can be called by any thread.
+     *
+     * @return the first item, or null if the deque is empty.
+     */
+    public Item steal() {
+
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b) {
+                return null;
+            }
+
+            CircularArray<Item> a = array;
+            Item item = a.get(t);
+            // Top still at t means the slot still held item t when it was read.
+            if (top.compareAndSet(t, t + 1)) {
+                return item;
+            }
+            // Another thief or the owner took it first, so try the new front.
+        }
+    }
+
+    /**
+     * Stress test: an owner thread adds items, removing some of them again as it
+     * goes, while the other threads steal. It runs twice. First the items are the
+     * numbers 0 to items - 1, and every number must be taken exactly once. Then the
+     * items are the 64 cached Integers 0 to 63 added over and over, and the owner
+     * takes none back until the end, so item i lands in slot i % 64 of an array
+     * of 64 on every lap: the same item in the slot it was stolen from. Every
+     * value must be taken as many times as it was added.
+     *
+     * @param args number of threads including the owner, number of items.
+     */
+    public static void main(String[] args) throws InterruptedException {
+
+        int threads = Integer.parseInt(args[0]);
+        int items = Integer.parseInt(args[1]);
+
+        stress(threads, items, items);
+        stress(threads, items, 64);
+    }
+
+    /* Helper methods */
+
+    /*
+     * Run the owner and the thieves over the given number of items, adding item i
+     * as the value i % values, and check that each value was taken once per add.
+     * With distinct values the owner also takes back a third of the items.
+     */
+    private static void stress(int threads, int items, int values) throws InterruptedException {
+
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        AtomicInteger[] taken = new AtomicInteger[values];
+        for (int v = 0; v < values; v++) {
+            taken[v] = new AtomicInteger();
+        }
+        LongAdder stolen = new LongAdder();
+        AtomicBoolean ownerDone = new AtomicBoolean();
+
+        Thread[] thieves = new Thread[threads - 1];
+        for (int t = 0; t < thieves.length; t++) {
+            thieves[t] = new Thread(() -> {
+                while (true) {
+                    Integer item = deque.steal();
+                    if (item != null) {
+                        taken[item].incrementAndGet();
+                        stolen.increment();
+                    }
+                    else if (ownerDone.get()) {
+                        return;
+                    }
+                }
+            });
+            thieves[t].start();
+        }
+
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(items);
+        for (int i = 0; i < items; i++) {
+            deque.addLast(Integer.valueOf(i % values));
+            if (values == items && random.nextInt(3) == 0) {
+                Integer item = deque.removeLast();
+                if (item != null) {
+                    taken[item].incrementAndGet();
+                }
+            }
+        }
+        // Take whatever the thieves left.
+        for (Integer item = deque.removeLast(); item != null; item = deque.removeLast()) {
+            taken[item].incrementAndGet();
+        }
+        ownerDone.set(true);
+        for (Thread thief : thieves) {
+            thief.join();
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        for (int v = 0; v < values; v++) {
+            int added = items / values + (v < items % values ? 1 : 0);
+            if (taken[v].get() != added) {
+                throw new IllegalStateException("Item " + v + " was added " + added
+                        + " times but taken " + taken[v].get() + " times");
+            }
+        }
+        System.out.println(values + " distinct items, every add taken once, "
+                + stolen.sum() + " stolen, in " + millis + " ms");
+    }
+
+    /**
+     * Inner class - Circular array of a power of two length, indexed by the
+     * ever growing top and bottom indices of the deque.
+     */
+    private static class CircularArray<Item> {
+
+        private final AtomicReferenceArray<Item> items;
+        private final int mask;
+
+        CircularArray(int capacity) {
+            items = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        Item get(long index) {
+            return items.get((int) index & mask);
+        }
+
+        void set(long index, Item item) {
+            items.set((int) index & mask, item);
+        }
+
+        /*
+         * Copy the items between top and bottom into an array twice as long.
+         */
+        CircularArray<Item> grow(long top, long bottom) {
+
+            CircularArray<Item> grown = new CircularArray<>(2 * capacity());
+            for (long i = top; i < bottom; i++) {
+                grown.set(i, get(i));
+            }
+            return grown;
+        }
+    }
+
+}
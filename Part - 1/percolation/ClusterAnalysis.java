@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Labels the clusters of open sites of a fully specified nxn grid at once,
+ * instead of opening its sites one by one through {@link Percolation#open(int, int)}.
+ * </p>
+ * <p>
+ * The grid is split into horizontal strips that are labelled in parallel, each
+ * with union-find links that stay inside the strip. The rows where two strips
+ * meet are then merged, and the clusters are counted strip by strip in parallel.
+ * </p>
+ * <p>
+ * The grid is given as a bitmap of n rows of ceil(n / 64) longs, where bit c % 64
+ * of word c / 64 of a row is set if site c of the row is open, the same layout
+ * {@link StreamingPercolation} reads.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class ClusterAnalysis {
+
+    // Parent value of a blocked site.
+    private static final int BLOCKED = Integer.MIN_VALUE;
+
+    private int gridWidth;
+    private int wordsPerRow;
+    private long[] grid;
+
+    /* Union-find forest over the sites. A non-negative value is the index of the
+       parent site, a negative value marks a root and holds minus its size. */
+    private int[] parent;
+
+    private int numberOfClusters = 0;
+    private SortedMap<Integer, Integer> clusterSizeHistogram = new TreeMap<Integer, Integer>();
+    private int spanningClusterLabel = -1;
+
+    /**
+     * Label the clusters of the given grid.
+     *
+     * @param grid bitmap of the open sites of the grid.
+     * @param n width and height of the grid.
+     * @param parallelism number of threads to label the strips on.
+     */
+    public ClusterAnalysis(long[] grid, int n, int parallelism) {
+
+        if (n <= 0 || n > Percolation.MAX_INT_INDEXED_GRID_WIDTH || parallelism <= 0) {
+            throw new IllegalArgumentException("Grid size or parallelism is not valid");
+        }
+        if (grid == null || grid.length != n * ((n + 63) >>> 6)) {
+            throw new IllegalArgumentException("Grid bitmap does not hold a grid of size " + n);
+        }
+
+        this.gridWidth = n;
+        this.wordsPerRow = (n + 63) >>> 6;
+        this.grid = grid;
+        this.parent = new int[n * n];
+
+        // Split the rows into a few strips per thread to even out the work.
+        int numberOfStrips = Math.min(n, 4 * parallelism);
+        int[] stripStarts = new int[numberOfStrips + 1];
+        for (int s = 0; s <= numberOfStrips; s++) {
+            stripStarts[s] = (int) ((long) s * n / numberOfStrips);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Void>> labellers = new ArrayList<Callable<Void>>();
+            for (int s = 0; s < numberOfStrips; s++) {
+                final int from = stripStarts[s];
+                final int to = stripStarts[s + 1];
+                labellers.add(() -> {
+                    labelStrip(from, to);
+                    return null;
+                });
+            }
+            waitFor(pool.invokeAll(labellers));
+
+            // Merge each strip with the one above along the first row of the strip.
+            for (int s = 1; s < numberOfStrips; s++) {
+                int site = stripStarts[s] * gridWidth;
+                for (int col = 0; col < gridWidth; col++, site++) {
+                    if (parent[site] != BLOCKED && parent[site - gridWidth] != BLOCKED) {
+                        union(site, site - gridWidth);
+                    }
+                }
+            }
+
+            List<Callable<Map<Integer, Integer>>> counters = new ArrayList<Callable<Map<Integer, Integer>>>();
+            for (int s = 0; s < numberOfStrips; s++) {
+                final int from = stripStarts[s];
+                final int to = stripStarts[s + 1];
+                counters.add(() -> countClusters(from, to));
+            }
+            for (Map<Integer, Integer> stripHistogram : waitFor(pool.invokeAll(counters))) {
+                for (Map.Entry<Integer, Integer> entry : stripHistogram.entrySet()) {
+                    clusterSizeHistogram.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                    numberOfClusters += entry.getValue();
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        findSpanningCluster();
+
+        // The labels are only needed while the clusters are counted.
+        this.parent = null;
+        this.grid = null;
+    }
+
+    public boolean percolates() {
+        return spanningClusterLabel >= 0;
+    }
+
+    public int numberOfClusters() {
+        return numberOfClusters;
+    }
+
+    /**
+     * Number of clusters of each size.
+     *
+     * @return map from cluster size to the number of clusters of that size, by increasing size.
+     */
+    public SortedMap<Integer, Integer> clusterSizeHistogram() {
+        return Collections.unmodifiableSortedMap(clusterSizeHistogram);
+    }
+
+    /**
+     * Label of a cluster that connects the top row to the bottom row. The label
+     * is the index row * n + col, 0-based, of one of the sites of the cluster.
+     *
+     * @return label of a spanning cluster, or -1 if the grid does not percolate.
+     */
+    public int spanningClusterLabel() {
+        return spanningClusterLabel;
+    }
+
+    /* Helper methods */
+    private boolean isOpen(int row, int col) {
+        return (grid[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /*
+     * Label the rows [from, to) linking each open site to its open left
+     * and up neighbours inside the strip only, so strips never share a tree.
+     */
+    private void labelStrip(int from, int to) {
+
+        for (int row = from; row < to; row++) {
+            int site = row * gridWidth;
+            for (int col = 0; col < gridWidth; col++, site++) {
+
+                if (!isOpen(row, col)) {
+                    parent[site] = BLOCKED;
+                    continue;
+                }
+
+                parent[site] = -1;
+                if (col > 0 && parent[site - 1] != BLOCKED) {
+                    union(site, site - 1);
+                }
+                if (row > from && parent[site - gridWidth] != BLOCKED) {
+                    union(site, site - gridWidth);
+                }
+            }
+        }
+    }
+
+    /*
+     * Count the clusters whose root lies in the rows [from, to) by size.
+     * Every cluster has exactly one root, so the strips count disjoint clusters.
+     */
+    private Map<Integer, Integer> countClusters(int from, int to) {
+
+        Map<Integer, Integer> histogram = new TreeMap<Integer, Integer>();
+        for (int site = from * gridWidth; site < to * gridWidth; site++) {
+            if (parent[site] < 0 && parent[site] != BLOCKED) {
+                histogram.merge(-parent[site], 1, Integer::sum);
+            }
+        }
+        return histogram;
+    }
+
+    /*
+     * Look for a bottom row site whose root is also the root of a top row site.
+     */
+    private void findSpanningCluster() {
+
+        int[] topRoots = new int[gridWidth];
+        int numberOfTopRoots = 0;
+        for (int site = 0; site < gridWidth; site++) {
+            if (parent[site] != BLOCKED) {
+                topRoots[numberOfTopRoots++] = find(site);
+            }
+        }
+        Arrays.sort(topRoots, 0, numberOfTopRoots);
+
+        for (int site = (gridWidth - 1) * gridWidth; site < gridWidth * gridWidth; site++) {
+            if (parent[site] != BLOCKED) {
+                int root = find(site);
+                if (Arrays.binarySearch(topRoots, 0, numberOfTopRoots, root) >= 0) {
+                    spanningClusterLabel = root;
+                    return;
+                }
+            }
+        }
+    }
+
+    private int find(int site) {
+
+        while (parent[site] >= 0) {
+            int grandParent = parent[parent[site]];
+            if (grandParent >= 0) {
+                parent[site] = grandParent;
+                site = grandParent;
+            }
+            else {
+                site = parent[site];
+            }
+        }
+        return site;
+    }
+
+    private void union(int site, int otherSite) {
+
+        int root = find(site);
+        int otherRoot = find(otherSite);
+
+        if (root == otherRoot) {
+            return;
+        }
+
+        // Sizes are stored negated, so the larger tree has the smaller value.
+        if (parent[root] > parent[otherRoot]) {
+            int temp = root;
+            root = otherRoot;
+            otherRoot = temp;
+        }
+        parent[root] += parent[otherRoot];
+        parent[otherRoot] = root;
+    }
+
+    private static <T> List<T> waitFor(List<Future<T>> futures) {
+
+        List<T> results = new ArrayList<T>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while labelling clusters", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Labelling clusters failed", e.getCause());
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,368 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Thread-safe percolation grid that many threads can open sites in at once.
+ * </p>
+ * <p>
+ * Nothing is locked. A site is opened by atomically setting its bit in the
+ * site bitmap, and only the thread that set the bit goes on to join the site
+ * with its open neighbours. The union-find is the compare-and-swap one of
+ * Anderson and Woll: a root is linked under another root with a single CAS on
+ * its parent entry, and paths are halved with CAS as well. Roots are always
+ * linked in the order of a fixed priority of the sites, so concurrent links
+ * can never form a cycle.
+ * </p>
+ * <p>
+ * As in {@link Percolation}, every root keeps whether its tree touches the top
+ * and the bottom row. Once a thread has linked a root, it or-s the flags of
+ * that root into the new root, following the new root up if it has been
+ * linked in turn. {@link #isFull(int, int)} and {@link #percolates()} can be
+ * called while other threads are opening sites. They see every site whose
+ * open() call has returned.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class ConcurrentPercolation {
+
+    private static final int TOUCHES_TOP = 1;
+    private static final int TOUCHES_BOTTOM = 2;
+
+    private int gridWidth;
+    private int numberOfSites;
+
+    /* A bit packed representation of the grid where a 1 bit means open. */
+    private AtomicLongArray openSites;
+
+    /* Union-find forest over the sites. A non-negative value is the index of
+       the parent site, a negative value marks a root and holds the complement
+       of the edges its tree touches. */
+    private AtomicIntegerArray parent;
+
+    private LongAdder numberOfOpenSites = new LongAdder();
+    private volatile boolean percolates = false;
+
+    public ConcurrentPercolation(int n) {
+
+        if (n <= 0 || n > Percolation.MAX_INT_INDEXED_GRID_WIDTH) {
+            throw new IllegalArgumentException("Invalid size of grid passed");
+        }
+
+        gridWidth = n;
+        numberOfSites = n * n;
+        openSites = new AtomicLongArray((numberOfSites + 63) >>> 6);
+
+        /*
+         * The flags of the top and bottom row sites are set up front, so opening
+         * a site only has to set its bit before other threads may join it.
+         * A blocked site is never joined, so its flags do not matter until then.
+         */
+        parent = new AtomicIntegerArray(numberOfSites);
+        for (int site = 0; site < numberOfSites; site++) {
+            int flags = 0;
+            if (site < gridWidth) {
+                flags |= TOUCHES_TOP;
+            }
+            if (site >= numberOfSites - gridWidth) {
+                flags |= TOUCHES_BOTTOM;
+            }
+            parent.set(site, ~flags);
+        }
+    }
+
+    public void open(int row, int col) {
+
+        validate(row, col);
+
+        int site = (row - 1) * gridWidth + (col - 1);
+        long bit = 1L << site;
+
+        // Only the thread that flips the bit joins the site with its neighbours.
+        long word = openSites.getAndAccumulate(site >>> 6, bit, (current, mask) -> current | mask);
+        if ((word & bit) != 0) {
+            return;
+        }
+
+        /*
+         * Both this thread and the thread opening a neighbour set their bit before
+         * reading the other one, so at least one of them sees both sites open.
+         */
+        if (row > 1 && isOpenSite(site - gridWidth)) {
+            union(site, site - gridWidth);
+        }
+        if (row < gridWidth && isOpenSite(site + gridWidth)) {
+            union(site, site + gridWidth);
+        }
+        if (col > 1 && isOpenSite(site - 1)) {
+            union(site, site - 1);
+        }
+        if (col < gridWidth && isOpenSite(site + 1)) {
+            union(site, site + 1);
+        }
+        // A single site grid touches both edges without any union.
+        if (flags(rootValue(site)) == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            percolates = true;
+        }
+
+        numberOfOpenSites.increment();
+    }
+
+    public boolean isOpen(int row, int col) {
+
+        validate(row, col);
+
+        return isOpenSite((row - 1) * gridWidth + (col - 1));
+    }
+
+    public boolean isFull(int row, int col) {
+
+        validate(row, col);
+
+        int site = (row - 1) * gridWidth + (col - 1);
+
+        return isOpenSite(site) && (flags(rootValue(site)) & TOUCHES_TOP) != 0;
+    }
+
+    public int numberOfOpenSites() {
+        return numberOfOpenSites.intValue();
+    }
+
+    public boolean percolates() {
+        return percolates;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        // Get the size n of nxn grid and the number of threads to open sites with
+        int n = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+
+        if (args.length > 2 && args[2].equals("--check")) {
+            checkAgainstSequential(n, threads);
+            return;
+        }
+
+        ConcurrentPercolation percolationGrid = new ConcurrentPercolation(n);
+        SplittableRandom random = new SplittableRandom();
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom workerRandom = random.split();
+            workers[t] = new Thread(() -> {
+                while (!percolationGrid.percolates()) {
+                    percolationGrid.open(workerRandom.nextInt(n) + 1, workerRandom.nextInt(n) + 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        System.out.println("open sites at percolation = " + percolationGrid.numberOfOpenSites());
+        System.out.println("time = " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /*
+     * Stress check: the threads open a random half of the sites between them while
+     * another thread keeps asking isFull of random sites. Sites only ever become
+     * full, so every site seen full must be full in a sequential Percolation with
+     * the same sites open. Half the sites is below the percolation threshold, so
+     * most open sites are not full.
+     */
+    private static void checkAgainstSequential(int n, int threads) throws InterruptedException {
+
+        int numberOfSites = n * n;
+        SplittableRandom random = new SplittableRandom(n);
+        int[] sites = new int[numberOfSites];
+        int count = 0;
+        for (int site = 0; site < numberOfSites; site++) {
+            if (random.nextBoolean()) {
+                sites[count++] = site;
+            }
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = sites[i];
+            sites[i] = sites[j];
+            sites[j] = temp;
+        }
+
+        Percolation oracle = new Percolation(n);
+        for (int i = 0; i < count; i++) {
+            oracle.open(sites[i] / n + 1, sites[i] % n + 1);
+        }
+
+        ConcurrentPercolation percolationGrid = new ConcurrentPercolation(n);
+        boolean[] seenFull = new boolean[numberOfSites];
+        AtomicBoolean opened = new AtomicBoolean();
+        SplittableRandom checkerRandom = random.split();
+        Thread checker = new Thread(() -> {
+            while (!opened.get()) {
+                int site = checkerRandom.nextInt(numberOfSites);
+                if (percolationGrid.isFull(site / n + 1, site % n + 1)) {
+                    seenFull[site] = true;
+                }
+            }
+        });
+        checker.start();
+
+        int openCount = count;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < openCount; i += threads) {
+                    percolationGrid.open(sites[i] / n + 1, sites[i] % n + 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        opened.set(true);
+        checker.join();
+
+        for (int site = 0; site < numberOfSites; site++) {
+            boolean full = oracle.isFull(site / n + 1, site % n + 1);
+            if (seenFull[site] && !full) {
+                throw new IllegalStateException("Site " + site + " was seen full but is not full");
+            }
+            if (percolationGrid.isFull(site / n + 1, site % n + 1) != full) {
+                throw new IllegalStateException("Site " + site + " differs from the sequential grid once opened");
+            }
+        }
+        if (percolationGrid.percolates() != oracle.percolates()
+                || percolationGrid.numberOfOpenSites() != oracle.numberOfOpenSites()) {
+            throw new IllegalStateException("Grid differs from the sequential grid once opened");
+        }
+        System.out.println("no site seen full that is not, " + count + " sites opened");
+    }
+
+    /* Helper methods */
+    private void validate(int row, int col) {
+
+        if ((row < 1) || (row > gridWidth) || (col < 1) || (col > gridWidth)) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private boolean isOpenSite(int site) {
+        return (openSites.get(site >>> 6) & (1L << site)) != 0;
+    }
+
+    /*
+     * Find the root of the tree of the given site, halving the path with CAS.
+     * A failed CAS only means another thread changed the path first.
+     */
+    private int find(int site) {
+
+        while (true) {
+            int parentSite = parent.get(site);
+            if (parentSite < 0) {
+                return site;
+            }
+            int grandParent = parent.get(parentSite);
+            if (grandParent < 0) {
+                return parentSite;
+            }
+            parent.compareAndSet(site, parentSite, grandParent);
+            site = grandParent;
+        }
+    }
+
+    /*
+     * Value of the root of the tree of the given site, the complement of its flags.
+     * The root found may be linked by another thread before its entry is read, in
+     * which case the search goes on from there until an entry read is a root value.
+     */
+    private int rootValue(int site) {
+
+        while (true) {
+            int root = find(site);
+            int rootValue = parent.get(root);
+            if (rootValue < 0) {
+                return rootValue;
+            }
+            site = root;
+        }
+    }
+
+    private void union(int site, int otherSite) {
+
+        while (true) {
+            int root = find(site);
+            int otherRoot = find(otherSite);
+            if (root == otherRoot) {
+                return;
+            }
+
+            // Always link the root of lower priority under the other one.
+            if (priority(root) > priority(otherRoot)) {
+                int temp = root;
+                root = otherRoot;
+                otherRoot = temp;
+            }
+
+            int rootValue = parent.get(root);
+            if (rootValue >= 0) {
+                // Linked by another thread since it was found, look again.
+                continue;
+            }
+            if (parent.compareAndSet(root, rootValue, otherRoot)) {
+                addFlags(otherRoot, flags(rootValue));
+                return;
+            }
+        }
+    }
+
+    /*
+     * Or the given flags into the root of the tree of the given site,
+     * following the tree up if its root is linked meanwhile.
+     */
+    private void addFlags(int site, int flags) {
+
+        int root = site;
+        while (true) {
+            int rootValue = parent.get(root);
+            if (rootValue >= 0) {
+                root = find(root);
+                continue;
+            }
+
+            int mergedFlags = flags(rootValue) | flags;
+            if (mergedFlags == flags(rootValue) || parent.compareAndSet(root, rootValue, ~mergedFlags)) {
+                if (mergedFlags == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                    percolates = true;
+                }
+                return;
+            }
+        }
+    }
+
+    private static int flags(int rootValue) {
+        return ~rootValue & (TOUCHES_TOP | TOUCHES_BOTTOM);
+    }
+
+    /*
+     * Fixed pseudo-random priority of a site. The mixing function is a bijection,
+     * so no two sites share a priority.
+     */
+    private static int priority(int site) {
+
+        int h = site;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+}
@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * Opens the sites recorded in a binary file into a {@link Percolation} grid.
+ * The file is memory mapped a chunk at a time and the sites are opened in
+ * batches through {@link Percolation#openAll(int[])}, through one reusable
+ * buffer, so nothing is allocated per site.
+ * </p>
+ * <p>
+ * Two formats are read. A site index file holds 0-based site indices
+ * (row - 1) * n + (col - 1) as big-endian 32 bit ints, opened in file order.
+ * A bitmap file holds n rows of ceil(n / 64) little-endian longs, bit c % 64
+ * of word c / 64 of a row being set if site c of the row is open, as read by
+ * {@link StreamingPercolation}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class GridLoader {
+
+    private static final int BATCH_SIZE = 1 << 16;
+    // Largest part of a file mapped at once.
+    private static final long MAPPING_BYTES = 1L << 30;
+
+    private GridLoader() {
+    }
+
+    /**
+     * Open the sites of a site index file, in order.
+     *
+     * @param grid grid to open the sites of.
+     * @param siteIndexFile file of big-endian int site indices.
+     * @return number of indices read.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long openSiteIndices(Percolation grid, Path siteIndexFile) throws IOException {
+
+        int[] batch = new int[BATCH_SIZE];
+        long indicesRead = 0;
+
+        try (FileChannel channel = FileChannel.open(siteIndexFile, StandardOpenOption.READ)) {
+
+            if (channel.size() % Integer.BYTES != 0) {
+                throw new IllegalArgumentException("Site index file does not hold whole ints");
+            }
+
+            long position = 0;
+            while (position < channel.size()) {
+
+                long bytes = Math.min(channel.size() - position, MAPPING_BYTES);
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+                IntBuffer indices = mapping.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+
+                while (indices.hasRemaining()) {
+                    int count = Math.min(indices.remaining(), BATCH_SIZE);
+                    indices.get(batch, 0, count);
+                    grid.openAll(batch, count);
+                    indicesRead += count;
+                }
+                position += bytes;
+            }
+        }
+
+        return indicesRead;
+    }
+
+    /**
+     * Open the open sites of a bitmap file, row by row.
+     *
+     * @param grid grid to open the sites of, of the same size as the bitmap.
+     * @param bitmapFile file of little-endian long row bitmaps.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void openBitmap(Percolation grid, Path bitmapFile) throws IOException {
+
+        int n = grid.gridWidth();
+        int wordsPerRow = (n + 63) >>> 6;
+        long bytesPerRow = 8L * wordsPerRow;
+        long rowsPerMapping = Math.max(1, MAPPING_BYTES / bytesPerRow);
+        long[] row = new long[wordsPerRow];
+        int[] batch = new int[BATCH_SIZE];
+        int batchSize = 0;
+
+        try (FileChannel channel = FileChannel.open(bitmapFile, StandardOpenOption.READ)) {
+
+            if (channel.size() != bytesPerRow * n) {
+                throw new IllegalArgumentException("Bitmap file does not hold a grid of size " + n);
+            }
+
+            int firstSite = 0;
+            long position = 0;
+            while (firstSite < n * n) {
+
+                long rows = Math.min((n * n - firstSite) / n, rowsPerMapping);
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, rows * bytesPerRow);
+                LongBuffer words = mapping.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+
+                for (long i = 0; i < rows; i++) {
+                    words.get(row);
+                    for (int w = 0; w < wordsPerRow; w++) {
+                        for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+                            int col = (w << 6) + Long.numberOfTrailingZeros(bits);
+                            if (col >= n) {
+                                break;
+                            }
+                            batch[batchSize++] = firstSite + col;
+                            if (batchSize == BATCH_SIZE) {
+                                grid.openAll(batch, batchSize);
+                                batchSize = 0;
+                            }
+                        }
+                    }
+                    firstSite += n;
+                }
+                position += rows * bytesPerRow;
+            }
+        }
+
+        grid.openAll(batch, batchSize);
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        // Get the format, the file and the size n of the nxn grid to load it into
+        String format = args[0];
+        Path file = Paths.get(args[1]);
+        int n = Integer.parseInt(args[2]);
+
+        Percolation percolation = new Percolation(n);
+        long start = System.nanoTime();
+        if (format.equals("indices")) {
+            openSiteIndices(percolation, file);
+        }
+        else if (format.equals("bitmap")) {
+            openBitmap(percolation, file);
+        }
+        else {
+            throw new IllegalArgumentException("Format must be indices or bitmap");
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        System.out.println("open sites = " + percolation.numberOfOpenSites());
+        System.out.println("percolates = " + percolation.percolates());
+        System.out.println("loaded in " + millis + " ms");
+    }
+
+}
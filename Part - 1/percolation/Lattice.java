@@ -0,0 +1,54 @@
+/**
+ * <p>
+ * Lattices that {@link LatticePercolation} can run on. Each lattice is a list of
+ * neighbour displacements on a square or cubic grid of sites. The first
+ * coordinate of a site runs from the top of the grid to the bottom.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public enum Lattice {
+
+    /** Square lattice, four neighbours: up, down, left and right. */
+    SQUARE(false, new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}),
+
+    /** Triangular lattice, the square lattice plus one of the diagonals: six neighbours. */
+    TRIANGULAR(false, new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, 1}, {1, -1}}),
+
+    /**
+     * Hexagonal (honeycomb) lattice drawn as a brick wall: three neighbours, left,
+     * right and either down or up depending on whether row + col is even or odd.
+     */
+    HEXAGONAL(true, new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}),
+
+    /** Simple cubic lattice, six neighbours along the three axes. */
+    SIMPLE_CUBIC(false, new int[][] {{-1, 0, 0}, {1, 0, 0}, {0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}});
+
+    private final boolean brickWall;
+    private final int[][] displacements;
+
+    Lattice(boolean brickWall, int[][] displacements) {
+        this.brickWall = brickWall;
+        this.displacements = displacements;
+    }
+
+    public int dimensions() {
+        return displacements[0].length;
+    }
+
+    int numberOfNeighbours() {
+        return displacements.length;
+    }
+
+    int displacement(int neighbour, int axis) {
+        return displacements[neighbour][axis];
+    }
+
+    /*
+     * Whether the brick wall parity decides which vertical neighbour a site has.
+     */
+    boolean isBrickWall() {
+        return brickWall;
+    }
+
+}
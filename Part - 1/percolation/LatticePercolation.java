@@ -0,0 +1,335 @@
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Site or bond percolation on any {@link Lattice}, on an n^d grid of sites.
+ * The grid percolates when an open path leads from the top face (first
+ * coordinate 0) to the bottom face (first coordinate n - 1).
+ * </p>
+ * <p>
+ * Neighbours come from a table of index offsets built once per grid. Which
+ * neighbours a site has depends only on the faces of the grid it lies on (and,
+ * on the hexagonal lattice, the parity of row + col), so those are folded into
+ * a boundary code and a precomputed mask per code says which offsets are valid.
+ * The hot loop walks the set bits of the mask with no per-neighbour bounds checks.
+ * </p>
+ * <p>
+ * Elements are numbered from 0 to {@link #numberOfElementSlots()} - 1. In site
+ * percolation an element is a site, numbered row-major. In bond percolation
+ * element site * f + j is the bond from a site to its j-th neighbour with a
+ * larger index, f being the number of such neighbours of an inner site. Slots
+ * of bonds that would leave the grid are not elements: opening one does nothing.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class LatticePercolation {
+
+    private static final int TOUCHES_TOP = PackedUnionFind.TOUCHES_TOP;
+    private static final int TOUCHES_BOTTOM = PackedUnionFind.TOUCHES_BOTTOM;
+
+    private Lattice lattice;
+    private boolean bondPercolation;
+    private int gridWidth;
+    private int dimensions;
+    private int numberOfSites;
+    private int numberOfElementSlots;
+    private int numberOfElements;
+
+    /* Neighbour tables. */
+    private int[] offsets;
+    // Bit k of the mask of a boundary code is set if neighbour k exists for sites with that code.
+    private int[] neighbourMasks;
+    // Neighbours with a larger index, which are the bonds a site owns.
+    private int[] forwardNeighbours;
+
+    /* Grid state. */
+    private long[] openElements;
+    // Union-find forest over the sites, encoded as PackedUnionFind describes.
+    private int[] parent;
+    private int numberOfOpenElements = 0;
+    private boolean percolates = false;
+
+    public LatticePercolation(Lattice lattice, int n, boolean bondPercolation) {
+
+        if (lattice == null || n <= 0) {
+            throw new IllegalArgumentException("Invalid lattice or size of grid passed");
+        }
+
+        this.lattice = lattice;
+        this.bondPercolation = bondPercolation;
+        this.gridWidth = n;
+        this.dimensions = lattice.dimensions();
+
+        long sites = 1;
+        for (int axis = 0; axis < dimensions; axis++) {
+            sites *= n;
+        }
+        if (sites > PackedUnionFind.MAX_SIZE) {
+            throw new IllegalArgumentException("Grid has too many sites");
+        }
+        numberOfSites = (int) sites;
+
+        buildNeighbourTables();
+
+        long slots = bondPercolation ? sites * forwardNeighbours.length : sites;
+        if (slots > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid has too many bonds");
+        }
+        numberOfElementSlots = (int) slots;
+        numberOfElements = bondPercolation ? countBonds() : numberOfSites;
+
+        openElements = new long[(numberOfElementSlots + 63) >>> 6];
+        parent = new int[numberOfSites];
+        reset();
+    }
+
+    /**
+     * Block every element again, so the grid can be reused for another trial.
+     */
+    public void reset() {
+
+        Arrays.fill(openElements, 0L);
+        numberOfOpenElements = 0;
+        percolates = false;
+
+        if (!bondPercolation) {
+            Arrays.fill(parent, PackedUnionFind.root(1, 0));
+            return;
+        }
+
+        // In bond percolation every site is open and knows the faces it touches from the start.
+        for (int site = 0; site < numberOfSites; site++) {
+            parent[site] = PackedUnionFind.root(1, edgeFlags(site));
+        }
+        if (gridWidth == 1) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Open the element if it is blocked.
+     *
+     * @param element index of a site or bond slot.
+     * @return true if a blocked element was opened.
+     */
+    public boolean open(int element) {
+
+        if (element < 0 || element >= numberOfElementSlots) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (isOpen(element)) {
+            return false;
+        }
+
+        int root;
+        if (bondPercolation) {
+            int site = element / forwardNeighbours.length;
+            int neighbour = forwardNeighbours[element % forwardNeighbours.length];
+            if ((neighbourMasks[boundaryCode(site)] & (1 << neighbour)) == 0) {
+                return false;
+            }
+            root = union(find(site), site + offsets[neighbour]);
+        }
+        else {
+            int site = element;
+            parent[site] = PackedUnionFind.root(1, edgeFlags(site));
+
+            root = site;
+            for (int mask = neighbourMasks[boundaryCode(site)]; mask != 0; mask &= mask - 1) {
+                int neighbourSite = site + offsets[Integer.numberOfTrailingZeros(mask)];
+                if (isOpen(neighbourSite)) {
+                    root = union(root, neighbourSite);
+                }
+            }
+        }
+
+        openElements[element >>> 6] |= 1L << element;
+        numberOfOpenElements++;
+        if (PackedUnionFind.flags(parent[root]) == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            percolates = true;
+        }
+        return true;
+    }
+
+    public boolean isOpen(int element) {
+        return (openElements[element >>> 6] & (1L << element)) != 0;
+    }
+
+    /**
+     * Whether the site is connected to the top face through open elements.
+     *
+     * @param site index of the site.
+     * @return true if the site is full.
+     */
+    public boolean isFull(int site) {
+
+        if (site < 0 || site >= numberOfSites) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (!bondPercolation && !isOpen(site)) {
+            return false;
+        }
+        return (PackedUnionFind.flags(parent[find(site)]) & TOUCHES_TOP) != 0;
+    }
+
+    public boolean percolates() {
+        return percolates;
+    }
+
+    public int numberOfOpenElements() {
+        return numberOfOpenElements;
+    }
+
+    /**
+     * Number of sites, or of bonds inside the grid in bond percolation.
+     *
+     * @return number of elements that can be opened.
+     */
+    public int numberOfElements() {
+        return numberOfElements;
+    }
+
+    /**
+     * Size of the element index space, including bond slots that leave the grid.
+     *
+     * @return number of element slots.
+     */
+    public int numberOfElementSlots() {
+        return numberOfElementSlots;
+    }
+
+    public Lattice lattice() {
+        return lattice;
+    }
+
+    /* Helper methods */
+
+    /*
+     * Build the index offset of every neighbour and the mask of valid neighbours
+     * of every boundary code. A boundary code holds two bits per axis, set when the
+     * site lies on the low or high face of that axis, and on the brick wall one more
+     * bit for the parity of row + col.
+     */
+    private void buildNeighbourTables() {
+
+        int neighbours = lattice.numberOfNeighbours();
+        offsets = new int[neighbours];
+        int[] forward = new int[neighbours];
+        int numberOfForward = 0;
+
+        for (int k = 0; k < neighbours; k++) {
+            int offset = 0;
+            int firstNonZero = 0;
+            for (int axis = 0; axis < dimensions; axis++) {
+                offset = offset * gridWidth + lattice.displacement(k, axis);
+                if (firstNonZero == 0) {
+                    firstNonZero = lattice.displacement(k, axis);
+                }
+            }
+            offsets[k] = offset;
+            // A neighbour has a larger index when its first non-zero displacement is positive.
+            if (firstNonZero > 0) {
+                forward[numberOfForward++] = k;
+            }
+        }
+        forwardNeighbours = Arrays.copyOf(forward, numberOfForward);
+
+        int codeBits = 2 * dimensions + (lattice.isBrickWall() ? 1 : 0);
+        neighbourMasks = new int[1 << codeBits];
+        for (int code = 0; code < neighbourMasks.length; code++) {
+            int mask = 0;
+            for (int k = 0; k < neighbours; k++) {
+                boolean valid = true;
+                for (int axis = 0; axis < dimensions; axis++) {
+                    int d = lattice.displacement(k, axis);
+                    boolean onLowFace = (code & (1 << (2 * axis))) != 0;
+                    boolean onHighFace = (code & (2 << (2 * axis))) != 0;
+                    if ((d < 0 && onLowFace) || (d > 0 && onHighFace)) {
+                        valid = false;
+                    }
+                }
+                if (lattice.isBrickWall() && lattice.displacement(k, 0) != 0) {
+                    // Even sites link down, odd sites link up.
+                    boolean odd = (code & (1 << (2 * dimensions))) != 0;
+                    if (odd != (lattice.displacement(k, 0) < 0)) {
+                        valid = false;
+                    }
+                }
+                if (valid) {
+                    mask |= 1 << k;
+                }
+            }
+            neighbourMasks[code] = mask;
+        }
+    }
+
+    private int boundaryCode(int site) {
+
+        int code = 0;
+        int parity = 0;
+        int rest = site;
+        for (int axis = dimensions - 1; axis >= 0; axis--) {
+            int coordinate = rest % gridWidth;
+            rest /= gridWidth;
+            code |= (coordinate == 0 ? 1 : 0) << (2 * axis);
+            code |= (coordinate == gridWidth - 1 ? 2 : 0) << (2 * axis);
+            parity += coordinate;
+        }
+        if (lattice.isBrickWall()) {
+            code |= (parity & 1) << (2 * dimensions);
+        }
+        return code;
+    }
+
+    private int edgeFlags(int site) {
+
+        int first = site / (numberOfSites / gridWidth);
+        int flags = 0;
+        if (first == 0) {
+            flags |= TOUCHES_TOP;
+        }
+        if (first == gridWidth - 1) {
+            flags |= TOUCHES_BOTTOM;
+        }
+        return flags;
+    }
+
+    private int countBonds() {
+
+        int forwardMask = 0;
+        for (int k : forwardNeighbours) {
+            forwardMask |= 1 << k;
+        }
+        long bonds = 0;
+        for (int site = 0; site < numberOfSites; site++) {
+            bonds += Integer.bitCount(neighbourMasks[boundaryCode(site)] & forwardMask);
+        }
+        return (int) bonds;
+    }
+
+    private int find(int site) {
+        return PackedUnionFind.find(parent, site);
+    }
+
+    private int union(int root, int otherSite) {
+
+        int otherRoot = find(otherSite);
+        if (root == otherRoot) {
+            return root;
+        }
+
+        int size = PackedUnionFind.size(parent[root]);
+        int otherSize = PackedUnionFind.size(parent[otherRoot]);
+        int flags = PackedUnionFind.flags(parent[root]) | PackedUnionFind.flags(parent[otherRoot]);
+        if (size < otherSize) {
+            int temp = root;
+            root = otherRoot;
+            otherRoot = temp;
+        }
+        parent[root] = PackedUnionFind.root(size + otherSize, flags);
+        parent[otherRoot] = root;
+        return root;
+    }
+
+}
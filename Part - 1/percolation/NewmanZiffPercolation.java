@@ -0,0 +1,313 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * <p>
+ * Newman-Ziff estimate of the observables of site percolation on an nxn grid.
+ * </p>
+ * <p>
+ * Each trial opens every site exactly once in a random order and records,
+ * after each addition, whether the grid spans from top to bottom, the size of
+ * the largest cluster and the number of clusters. Averaging over the trials
+ * gives the observables as a function of the number k of open sites. The value
+ * at any site occupation probability p is then the average over k weighted by
+ * the binomial distribution B(N, k, p), so the whole curve comes out of the
+ * same trials instead of re-simulating at every p.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class NewmanZiffPercolation {
+
+    private static final byte TOUCHES_TOP = 1;
+    private static final byte TOUCHES_BOTTOM = 2;
+    // Parent value of a site that has not been opened yet in the current trial.
+    private static final int BLOCKED = Integer.MIN_VALUE;
+
+    private int gridWidth;
+    private int numberOfSites;
+    private int trials;
+
+    /* Observables indexed by the number of open sites, averaged over the trials. */
+    private double[] spanningProbability;
+    private double[] largestClusterSize;
+    private double[] numberOfClusters;
+
+    /* Union-find state of the current trial. A non-negative value is the index of
+       the parent site, a negative value marks a root and holds minus its size. */
+    private int[] parent;
+    private byte[] edges;
+    private int[] order;
+    private int clusters;
+
+    public NewmanZiffPercolation(int n, int trials, long seed) {
+
+        if (n <= 0 || trials <= 0) {
+            throw new IllegalArgumentException("Grid size or trials number is not valid");
+        }
+
+        this.gridWidth = n;
+        this.numberOfSites = n * n;
+        this.trials = trials;
+
+        spanningProbability = new double[numberOfSites + 1];
+        largestClusterSize = new double[numberOfSites + 1];
+        numberOfClusters = new double[numberOfSites + 1];
+
+        parent = new int[numberOfSites];
+        edges = new byte[numberOfSites];
+        order = new int[numberOfSites];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] spanningMoments = new int[numberOfSites + 1];
+        for (int i = 0; i < trials; i++) {
+            spanningMoments[runTrial(random.split())]++;
+        }
+
+        // Spanning is monotone, so the probability at k is the share of trials that spanned by k.
+        int spanned = 0;
+        for (int k = 0; k <= numberOfSites; k++) {
+            spanned += spanningMoments[k];
+            spanningProbability[k] = (double) spanned / trials;
+            largestClusterSize[k] /= trials;
+            numberOfClusters[k] /= trials;
+        }
+
+        // The trial state is only needed while the trials run.
+        parent = null;
+        edges = null;
+        order = null;
+    }
+
+    /**
+     * Probability that the grid percolates when each site is open with probability p.
+     *
+     * @param p site occupation probability.
+     * @return percolation probability P(p).
+     */
+    public double percolationProbability(double p) {
+        return convolve(spanningProbability, p);
+    }
+
+    /**
+     * Expected size of the largest cluster as a fraction of the number of sites.
+     *
+     * @param p site occupation probability.
+     * @return largest cluster fraction at p.
+     */
+    public double largestClusterFraction(double p) {
+        return convolve(largestClusterSize, p) / numberOfSites;
+    }
+
+    /**
+     * Expected number of clusters of open sites.
+     *
+     * @param p site occupation probability.
+     * @return number of clusters at p.
+     */
+    public double numberOfClusters(double p) {
+        return convolve(numberOfClusters, p);
+    }
+
+    /**
+     * Share of the trials that percolated with exactly k sites open.
+     *
+     * @param k number of open sites.
+     * @return percolation probability with k sites open.
+     */
+    public double percolationProbabilityAtCount(int k) {
+
+        if (k < 0 || k > numberOfSites) {
+            throw new IndexOutOfBoundsException();
+        }
+        return spanningProbability[k];
+    }
+
+    public int trials() {
+        return trials;
+    }
+
+    public static void main(String[] args) {
+
+        // Get the size n of nxn grid, the number of trials and the number of points on the curve
+        int n = 0, trials = 0, points = 0;
+        try {
+            n = Integer.parseInt(args[0]);
+            trials = Integer.parseInt(args[1]);
+            points = Integer.parseInt(args[2]);
+        }
+        catch (NumberFormatException nfe) {
+            System.out.println("Enter valid grid size, trials number and number of points.");
+        }
+
+        if (n <= 0 || trials <= 0 || points <= 1) {
+            throw new IllegalArgumentException("Grid size, trials number or number of points is not valid");
+        }
+
+        NewmanZiffPercolation curve = new NewmanZiffPercolation(n, trials, StdRandom.getSeed());
+        System.out.println("p\tP(p)\tlargest cluster\tclusters");
+        for (int i = 0; i < points; i++) {
+            double p = (double) i / (points - 1);
+            System.out.println(p + "\t" + curve.percolationProbability(p) + "\t"
+                    + curve.largestClusterFraction(p) + "\t" + curve.numberOfClusters(p));
+        }
+    }
+
+    /**
+     * Helper method that opens every site of a blocked grid in a random order
+     * and adds the observables after each addition to the running sums.
+     *
+     * @param random random source of the trial.
+     * @return number of open sites at the point of percolation.
+     */
+    private int runTrial(SplittableRandom random) {
+
+        Arrays.fill(parent, BLOCKED);
+        for (int i = 0; i < numberOfSites; i++) {
+            order[i] = i;
+        }
+        // Fisher-Yates shuffle of the opening order
+        for (int i = numberOfSites - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+
+        int spanningMoment = -1;
+        int largest = 0;
+        clusters = 0;
+
+        for (int k = 1; k <= numberOfSites; k++) {
+
+            int site = order[k - 1];
+            int row = site / gridWidth;
+            int col = site % gridWidth;
+
+            // The new site is a cluster of its own until it is joined with its open neighbours.
+            parent[site] = -1;
+            edges[site] = 0;
+            if (row == 0) {
+                edges[site] |= TOUCHES_TOP;
+            }
+            if (row == gridWidth - 1) {
+                edges[site] |= TOUCHES_BOTTOM;
+            }
+            clusters++;
+
+            int root = site;
+            if (row > 0 && isOpen(site - gridWidth)) {
+                root = union(root, site - gridWidth);
+            }
+            if (row < gridWidth - 1 && isOpen(site + gridWidth)) {
+                root = union(root, site + gridWidth);
+            }
+            if (col > 0 && isOpen(site - 1)) {
+                root = union(root, site - 1);
+            }
+            if (col < gridWidth - 1 && isOpen(site + 1)) {
+                root = union(root, site + 1);
+            }
+
+            largest = Math.max(largest, -parent[root]);
+            if (spanningMoment < 0 && edges[root] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                spanningMoment = k;
+            }
+
+            largestClusterSize[k] += largest;
+            numberOfClusters[k] += clusters;
+        }
+
+        return spanningMoment;
+    }
+
+    private boolean isOpen(int site) {
+        return parent[site] != BLOCKED;
+    }
+
+    private int find(int site) {
+
+        while (parent[site] >= 0) {
+            int grandParent = parent[parent[site]];
+            if (grandParent >= 0) {
+                parent[site] = grandParent;
+                site = grandParent;
+            }
+            else {
+                site = parent[site];
+            }
+        }
+        return site;
+    }
+
+    /*
+     * Merge the cluster with the given root and the cluster of the given site,
+     * lowering the cluster count if they were different clusters.
+     * Returns the root of the merged cluster.
+     */
+    private int union(int root, int otherSite) {
+
+        int otherRoot = find(otherSite);
+        if (root == otherRoot) {
+            return root;
+        }
+
+        if (parent[root] > parent[otherRoot]) {
+            int temp = root;
+            root = otherRoot;
+            otherRoot = temp;
+        }
+        parent[root] += parent[otherRoot];
+        parent[otherRoot] = root;
+        edges[root] |= edges[otherRoot];
+        clusters--;
+        return root;
+    }
+
+    /*
+     * Average of the observable over k weighted by the binomial distribution
+     * B(N, k, p). The weights are built outwards from the most likely k
+     * by their ratio to the neighbouring weight, which avoids computing the
+     * binomial coefficients themselves.
+     */
+    private double convolve(double[] observable, double p) {
+
+        if (p < 0.0 || p > 1.0) {
+            throw new IllegalArgumentException("Probability must be between 0 and 1");
+        }
+        if (p == 0.0) {
+            return observable[0];
+        }
+        if (p == 1.0) {
+            return observable[numberOfSites];
+        }
+
+        int mode = (int) Math.floor((numberOfSites + 1) * p);
+        if (mode > numberOfSites) {
+            mode = numberOfSites;
+        }
+        double oddsUp = p / (1.0 - p);
+        double oddsDown = (1.0 - p) / p;
+
+        double weightSum = 1.0;
+        double sum = observable[mode];
+
+        double weight = 1.0;
+        for (int k = mode; k < numberOfSites && weight > 1e-300; k++) {
+            weight *= oddsUp * (numberOfSites - k) / (k + 1);
+            weightSum += weight;
+            sum += weight * observable[k + 1];
+        }
+        weight = 1.0;
+        for (int k = mode; k > 0 && weight > 1e-300; k--) {
+            weight *= oddsDown * k / (numberOfSites - k + 1);
+            weightSum += weight;
+            sum += weight * observable[k - 1];
+        }
+
+        return sum / weightSum;
+    }
+
+}
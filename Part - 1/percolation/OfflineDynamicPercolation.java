@@ -0,0 +1,395 @@
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Percolation grid whose sites can be closed again as well as opened,
+ * answered offline: the opens, closes and queries are recorded first
+ * and {@link #solve()} then answers every query at once.
+ * </p>
+ * <p>
+ * Every site is open during a set of time intervals between updates. Each
+ * interval is added to the O(log q) nodes of a segment tree over the q queries
+ * that it covers. A depth first walk of the tree opens the sites of a node on
+ * the way down, answers the query of each leaf, and undoes the opens on the way
+ * back up. The union-find links by size without path compression, so each undo
+ * is a constant time pop from a log and every find takes O(log n). An update
+ * costs O(log q log n) overall, instead of rebuilding the grid on every close.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class OfflineDynamicPercolation {
+
+    private static final byte TOUCHES_TOP = 1;
+    private static final byte TOUCHES_BOTTOM = 2;
+
+    private int gridWidth;
+    private int numberOfSites;
+
+    /* Recorded timeline. The time is the number of updates recorded so far,
+       so a query sees the sites open at the time it was recorded at. */
+    private int time = 0;
+    // Time since which each site is open, or -1 if it is closed.
+    private int[] openSince;
+    private int[] intervalSites = new int[16];
+    private int[] intervalStarts = new int[16];
+    private int[] intervalEnds = new int[16];
+    private int numberOfIntervals = 0;
+    // Time and site of each query. The site is -1 for a percolates query.
+    private int[] queryTimes = new int[16];
+    private int[] querySites = new int[16];
+    private int numberOfQueries = 0;
+
+    /* Sites added at each segment tree node, as linked lists of entries. */
+    private int[] nodeHead;
+    private int[] entryNext;
+    private int[] entrySite;
+    private int numberOfEntries;
+
+    /* Union-find with rollback while solving. */
+    private long[] openSites;
+    private int[] parent;
+    private int[] size;
+    private byte[] edges;
+    private int numberOfPercolatingRoots;
+    // Undo log. A non-negative child is a root that was linked, a negative one is ~site of an opened site.
+    private int[] logChild;
+    private byte[] logEdges;
+    private int logSize;
+
+    public OfflineDynamicPercolation(int n) {
+
+        if (n <= 0 || n > Percolation.MAX_INT_INDEXED_GRID_WIDTH) {
+            throw new IllegalArgumentException("Invalid size of grid passed");
+        }
+
+        gridWidth = n;
+        numberOfSites = n * n;
+        openSince = new int[numberOfSites];
+        Arrays.fill(openSince, -1);
+    }
+
+    /**
+     * Record opening the site, which does nothing if it is open already.
+     */
+    public void open(int row, int col) {
+
+        int site = site(row, col);
+        time++;
+        if (openSince[site] < 0) {
+            openSince[site] = time;
+        }
+    }
+
+    /**
+     * Record closing the site, which does nothing if it is closed already.
+     */
+    public void close(int row, int col) {
+
+        int site = site(row, col);
+        time++;
+        if (openSince[site] >= 0) {
+            addInterval(site, openSince[site], time);
+            openSince[site] = -1;
+        }
+    }
+
+    /**
+     * Record asking whether the grid percolates after the updates recorded so far.
+     *
+     * @return index of the answer in the array returned by {@link #solve()}.
+     */
+    public int queryPercolates() {
+        return addQuery(-1);
+    }
+
+    /**
+     * Record asking whether the site is full after the updates recorded so far.
+     *
+     * @return index of the answer in the array returned by {@link #solve()}.
+     */
+    public int queryIsFull(int row, int col) {
+        return addQuery(site(row, col));
+    }
+
+    /**
+     * Answer every query recorded so far. More updates and queries
+     * can be recorded afterwards and solved again.
+     *
+     * @return answers of the queries by query index.
+     */
+    public boolean[] solve() {
+
+        boolean[] answers = new boolean[numberOfQueries];
+        if (numberOfQueries == 0) {
+            return answers;
+        }
+
+        // Segment tree over the queries, holding the sites open for the whole range of a node.
+        nodeHead = new int[4 * numberOfQueries];
+        Arrays.fill(nodeHead, -1);
+        entryNext = new int[16];
+        entrySite = new int[16];
+        numberOfEntries = 0;
+
+        for (int i = 0; i < numberOfIntervals; i++) {
+            insertInterval(intervalSites[i], intervalStarts[i], intervalEnds[i]);
+        }
+        for (int site = 0; site < numberOfSites; site++) {
+            if (openSince[site] >= 0) {
+                insertInterval(site, openSince[site], Integer.MAX_VALUE);
+            }
+        }
+
+        openSites = new long[(numberOfSites + 63) >>> 6];
+        parent = new int[numberOfSites];
+        size = new int[numberOfSites];
+        edges = new byte[numberOfSites];
+        logChild = new int[16];
+        logEdges = new byte[16];
+        logSize = 0;
+        numberOfPercolatingRoots = 0;
+
+        solve(1, 0, numberOfQueries - 1, answers);
+
+        nodeHead = null;
+        entryNext = null;
+        entrySite = null;
+        openSites = null;
+        parent = null;
+        size = null;
+        edges = null;
+        logChild = null;
+        logEdges = null;
+        return answers;
+    }
+
+    /* Helper methods */
+    private int site(int row, int col) {
+
+        if ((row < 1) || (row > gridWidth) || (col < 1) || (col > gridWidth)) {
+            throw new IndexOutOfBoundsException();
+        }
+        return (row - 1) * gridWidth + (col - 1);
+    }
+
+    private void addInterval(int site, int start, int end) {
+
+        if (numberOfIntervals == intervalSites.length) {
+            intervalSites = Arrays.copyOf(intervalSites, 2 * numberOfIntervals);
+            intervalStarts = Arrays.copyOf(intervalStarts, 2 * numberOfIntervals);
+            intervalEnds = Arrays.copyOf(intervalEnds, 2 * numberOfIntervals);
+        }
+        intervalSites[numberOfIntervals] = site;
+        intervalStarts[numberOfIntervals] = start;
+        intervalEnds[numberOfIntervals] = end;
+        numberOfIntervals++;
+    }
+
+    private int addQuery(int site) {
+
+        if (numberOfQueries == queryTimes.length) {
+            queryTimes = Arrays.copyOf(queryTimes, 2 * numberOfQueries);
+            querySites = Arrays.copyOf(querySites, 2 * numberOfQueries);
+        }
+        queryTimes[numberOfQueries] = time;
+        querySites[numberOfQueries] = site;
+        return numberOfQueries++;
+    }
+
+    /*
+     * Add the site to the nodes covering the queries asked while it was open,
+     * that is at a time in [start, end). Query times never decrease.
+     */
+    private void insertInterval(int site, int start, int end) {
+
+        int first = firstQueryAtOrAfter(start);
+        int last = firstQueryAtOrAfter(end) - 1;
+        if (first <= last) {
+            insert(1, 0, numberOfQueries - 1, first, last, site);
+        }
+    }
+
+    private int firstQueryAtOrAfter(int t) {
+
+        int lo = 0;
+        int hi = numberOfQueries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (queryTimes[mid] < t) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void insert(int node, int lo, int hi, int first, int last, int site) {
+
+        if (first <= lo && hi <= last) {
+            if (numberOfEntries == entrySite.length) {
+                entrySite = Arrays.copyOf(entrySite, 2 * numberOfEntries);
+                entryNext = Arrays.copyOf(entryNext, 2 * numberOfEntries);
+            }
+            entrySite[numberOfEntries] = site;
+            entryNext[numberOfEntries] = nodeHead[node];
+            nodeHead[node] = numberOfEntries++;
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        if (first <= mid) {
+            insert(2 * node, lo, mid, first, last, site);
+        }
+        if (last > mid) {
+            insert(2 * node + 1, mid + 1, hi, first, last, site);
+        }
+    }
+
+    private void solve(int node, int lo, int hi, boolean[] answers) {
+
+        int checkpoint = logSize;
+        for (int entry = nodeHead[node]; entry >= 0; entry = entryNext[entry]) {
+            openSite(entrySite[entry]);
+        }
+
+        if (lo == hi) {
+            int site = querySites[lo];
+            if (site < 0) {
+                answers[lo] = numberOfPercolatingRoots > 0;
+            }
+            else {
+                answers[lo] = isOpenSite(site) && (edges[find(site)] & TOUCHES_TOP) != 0;
+            }
+        }
+        else {
+            int mid = (lo + hi) >>> 1;
+            solve(2 * node, lo, mid, answers);
+            solve(2 * node + 1, mid + 1, hi, answers);
+        }
+
+        rollback(checkpoint);
+    }
+
+    private boolean isOpenSite(int site) {
+        return (openSites[site >>> 6] & (1L << site)) != 0;
+    }
+
+    private void openSite(int site) {
+
+        openSites[site >>> 6] |= 1L << site;
+        parent[site] = site;
+        size[site] = 1;
+        edges[site] = 0;
+        if (site < gridWidth) {
+            edges[site] |= TOUCHES_TOP;
+        }
+        if (site >= numberOfSites - gridWidth) {
+            edges[site] |= TOUCHES_BOTTOM;
+        }
+        if (edges[site] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            numberOfPercolatingRoots++;
+        }
+        log(~site, (byte) 0);
+
+        int row = site / gridWidth;
+        int col = site % gridWidth;
+        if (row > 0 && isOpenSite(site - gridWidth)) {
+            union(site, site - gridWidth);
+        }
+        if (row < gridWidth - 1 && isOpenSite(site + gridWidth)) {
+            union(site, site + gridWidth);
+        }
+        if (col > 0 && isOpenSite(site - 1)) {
+            union(site, site - 1);
+        }
+        if (col < gridWidth - 1 && isOpenSite(site + 1)) {
+            union(site, site + 1);
+        }
+    }
+
+    private int find(int site) {
+
+        while (parent[site] != site) {
+            site = parent[site];
+        }
+        return site;
+    }
+
+    private void union(int site, int otherSite) {
+
+        int root = find(site);
+        int otherRoot = find(otherSite);
+        if (root == otherRoot) {
+            return;
+        }
+
+        if (size[root] < size[otherRoot]) {
+            int temp = root;
+            root = otherRoot;
+            otherRoot = temp;
+        }
+
+        log(otherRoot, edges[root]);
+        if (edges[root] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            numberOfPercolatingRoots--;
+        }
+        if (edges[otherRoot] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            numberOfPercolatingRoots--;
+        }
+        parent[otherRoot] = root;
+        size[root] += size[otherRoot];
+        edges[root] |= edges[otherRoot];
+        if (edges[root] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            numberOfPercolatingRoots++;
+        }
+    }
+
+    private void log(int child, byte rootEdges) {
+
+        if (logSize == logChild.length) {
+            logChild = Arrays.copyOf(logChild, 2 * logSize);
+            logEdges = Arrays.copyOf(logEdges, 2 * logSize);
+        }
+        logChild[logSize] = child;
+        logEdges[logSize] = rootEdges;
+        logSize++;
+    }
+
+    /*
+     * Undo every open and union logged after the checkpoint, newest first.
+     */
+    private void rollback(int checkpoint) {
+
+        while (logSize > checkpoint) {
+            logSize--;
+            int child = logChild[logSize];
+
+            if (child < 0) {
+                int site = ~child;
+                if (edges[site] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                    numberOfPercolatingRoots--;
+                }
+                openSites[site >>> 6] &= ~(1L << site);
+                continue;
+            }
+
+            int root = parent[child];
+            if (edges[root] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                numberOfPercolatingRoots--;
+            }
+            size[root] -= size[child];
+            edges[root] = logEdges[logSize];
+            parent[child] = child;
+            if (edges[root] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                numberOfPercolatingRoots++;
+            }
+            if (edges[child] == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                numberOfPercolatingRoots++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * <p>
+ * The union-find forest of {@link Percolation} and {@link LatticePercolation},
+ * kept in one int array. A non-negative entry is the index of the parent site.
+ * A negative entry marks a root and holds the complement of the size of its tree
+ * shifted left by {@link #FLAG_BITS}, or-ed with the flags of the edges of the
+ * grid the tree touches.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+final class PackedUnionFind {
+
+    /* Flags kept by a root for the edges of the grid its tree touches. */
+    static final int TOUCHES_TOP = 1;
+    static final int TOUCHES_BOTTOM = 2;
+    static final int FLAG_BITS = 2;
+    // Largest tree size that still fits next to the flags of a root.
+    static final int MAX_SIZE = Integer.MAX_VALUE >>> FLAG_BITS;
+
+    private PackedUnionFind() {
+    }
+
+    static int root(int size, int flags) {
+        return ~((size << FLAG_BITS) | flags);
+    }
+
+    static int size(int rootValue) {
+        return ~rootValue >>> FLAG_BITS;
+    }
+
+    static int flags(int rootValue) {
+        return ~rootValue & ((1 << FLAG_BITS) - 1);
+    }
+
+    /*
+     * Find the root of the tree containing the given site, halving
+     * the path on the way up by pointing every other site at its grandparent.
+     */
+    static int find(int[] parent, int site) {
+
+        while (parent[site] >= 0) {
+            int grandParent = parent[parent[site]];
+            if (grandParent >= 0) {
+                parent[site] = grandParent;
+                site = grandParent;
+            }
+            else {
+                site = parent[site];
+            }
+        }
+        return site;
+    }
+
+}
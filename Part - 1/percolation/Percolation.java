@@ -1,7 +1,8 @@
-
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
 
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
 
 /**
  * @author Rabboni Rabi
@@ -9,162 +10,436 @@ import edu.princeton.cs.algs4.WeightedQuickUnionUF;
 
 public class Percolation {
 
-    /* A boolean representation of a percolation grid where a false means blocked
-       and a true means open.*/
-    private boolean[][] sitesGrid;
+    /* A bit packed representation of a percolation grid where a 0 bit means blocked
+       and a 1 bit means open. Site (row, col) is stored at bit (row-1) * n + (col-1).*/
+    private long[] openSites;
+
+    /* Flags kept by a root for the edges of the grid its tree touches. */
+    private static final int TOUCHES_TOP = PackedUnionFind.TOUCHES_TOP;
+    private static final int TOUCHES_BOTTOM = PackedUnionFind.TOUCHES_BOTTOM;
+    // Largest grid width whose number of sites still fits next to the flags of a root.
+    private static final int MAX_GRID_WIDTH = (int) Math.sqrt(PackedUnionFind.MAX_SIZE);
+    // Largest grid width whose n * n sites can all be indexed by an int, 46340.
+    static final int MAX_INT_INDEXED_GRID_WIDTH = (int) Math.sqrt(Integer.MAX_VALUE);
+    // Number of values saved by a checkpoint.
+    private static final int SAVED_VALUES = 8;
+    // Number of sites of a stream opened as one batch.
+    private static final int BATCH_SIZE = 4096;
+    /* Direction from a site of a spanning path back to the site before it. */
+    private static final int FROM_ABOVE = 0;
+    private static final int FROM_BELOW = 1;
+    private static final int FROM_LEFT = 2;
+    private static final int FROM_RIGHT = 3;
+
+    /* Union-find forest over the sites, encoded as PackedUnionFind describes. */
+    private int[] parent;
     private int gridWidth;
     private int numberOfSites = 0;
     private int numberOfOpenSites = 0;
-    private int topVirtualSiteLocation;
-    private int bottomVirtualSiteLocation;
-    private WeightedQuickUnionUF weightedQuickUnionUF;
+    private boolean percolates = false;
+
+    /* Cluster statistics, kept up to date by open(). */
+    private int numberOfClusters = 0;
+    private int largestClusterSize = 0;
+    private int numberOfFullSites = 0;
+
+    /* Moment of percolation: the site whose opening made the grid percolate,
+       or -1 while it does not, and the number of sites open right after. */
+    private int percolationSite = -1;
+    private int openSitesAtPercolation = 0;
+
+    /* Breadth first search of spanningPath(), allocated by the first call and reused.
+       The queue is a ring buffer, and each site has a visited bit and two bits of direction. */
+    private int[] pathQueue;
+    private int pathQueueHead;
+    private int pathQueueTail;
+    private long[] visitedSites;
+    private long[] pathDirections;
+
+    /* Checkpoints set by mark(). While one is set, every write to the grid is
+       logged so rollback() can undo it, and find() does not halve paths. */
+    private int[] marks = new int[0];
+    private int numberOfMarks = 0;
+    // Undo log. A non-negative index is a parent entry and its old value, a negative one is ~site of an opened site.
+    private int[] undoIndices = new int[0];
+    private int[] undoValues = new int[0];
+    private int undoLogSize = 0;
 
     public Percolation(int n) {
 
-        if (n <= 0) {
+        if (n <= 0 || n > MAX_GRID_WIDTH) {
             throw new IllegalArgumentException("Invalid size of grid passed");
         }
 
         gridWidth = n;
         numberOfSites = n * n;
-        // Two extra sites - virtual site at the top and virtual site at the bottom.
-        weightedQuickUnionUF = new WeightedQuickUnionUF(numberOfSites + 2);
 
         /*
-        * Since the weighted quick union initialises the grid
-        * from 0 to n-1 where n is the number of sites(cells),
-        * the nth element is seen as the top virtual site
-        * and the n + 1th element is seen as the bottom virtual site
-        * in my implementation.
-        *
-        * An instance of WeightedQuickUnionFind is initialised
-        * in the class constructor
-        * with number of sites to be n + 2
-        */
-        topVirtualSiteLocation = numberOfSites;
-        bottomVirtualSiteLocation = numberOfSites + 1;
-
-        // Connect the top row of the grid to the top virtual site
-        connectTopRowOfGridToTopVirtualSite();
-        // connect the bottom row of the grid to the bottom virutal site
-        connectBottomRowOfGridToBottomVirtualSite();
+         * There are no virtual top and bottom sites. Instead every root
+         * knows whether its tree touches the top row and the bottom row,
+         * and the flags are merged on union. A site is full when its root
+         * touches the top, and the grid percolates once a root touches both.
+         * Unlike a virtual bottom site, this never lets a bottom row site
+         * look full through another site connected to the bottom row.
+         */
+
         // Initialise the grid with all sites blocked
-        initialiseAllSitesBlockedGrid();
+        openSites = new long[(numberOfSites + 63) >>> 6];
+        // Initialise every site as a root of a tree of size 1
+        parent = new int[numberOfSites];
+        Arrays.fill(parent, PackedUnionFind.root(1, 0));
 
+    }
+
+    public void open(int row, int col) {
 
+        validate(row, col);
 
+        openSite((row - 1) * gridWidth + (col - 1), row, col);
     }
 
-    public void open(int row, int col) {
+    /**
+     * Open a batch of sites given by their 0-based index (row - 1) * n + (col - 1),
+     * in order. The indices are checked once for the whole batch before any site
+     * is opened, so a batch with an invalid index opens nothing.
+     *
+     * @param siteIndices indices of the sites to open.
+     */
+    public void openAll(int[] siteIndices) {
 
-        // If the site is not already open, open it.
-        if (!isOpen(row, col)) {
+        if (siteIndices == null) {
+            throw new NullPointerException("Site indices were null");
+        }
 
-            // Use local variables to switch to standard array convention
-            int arrayRow = row - 1;
-            int arrayColumn = col - 1;
+        openAll(siteIndices, siteIndices.length);
+    }
 
-            if ((arrayRow < 0) || (arrayRow >= sitesGrid[0].length) || (arrayColumn < 0)
-                    || (arrayColumn >= sitesGrid[0].length)) {
-                throw new IndexOutOfBoundsException();
-            }
+    /**
+     * Open the sites of a stream of 0-based site indices, in order. The stream is
+     * read into a buffer and each buffer is checked and opened as a batch, so if
+     * an index is invalid the batches before the one holding it stay open.
+     *
+     * @param siteIndices indices of the sites to open.
+     */
+    public void openAll(IntStream siteIndices) {
 
-            sitesGrid[arrayRow][arrayColumn] = true;
-
-            /* Check the four neighbours and create a union with them if they are open too.
-             * Four neighbours are present for each cell-except those at the edges.
-             * Four neighbours are up, down, left and right.
-             */
-            if (arrayRow - 1 >= 0) {
-                if (isOpen(row - 1, col)) {
-                    // connect these two
-                    weightedQuickUnionUF.union((arrayRow * gridWidth) + arrayColumn,
-                            ((arrayRow - 1) * gridWidth + arrayColumn));
-                }
-            }
-            if (arrayRow + 1 < gridWidth) {
-                if (isOpen(row + 1, col)) {
-                    // connect these two
-                    weightedQuickUnionUF.union((arrayRow * gridWidth) + arrayColumn,
-                            (arrayRow + 1) * gridWidth + arrayColumn);
-                }
-            }
-            if (arrayColumn - 1 >= 0) {
-                if (isOpen(row, col-1)) {
-                    // connect these two
-                    weightedQuickUnionUF.union((arrayRow * gridWidth) + arrayColumn,
-                            (arrayRow * gridWidth) + (arrayColumn - 1));
-                }
-            }
-            if (arrayColumn + 1 < gridWidth) {
-                if (isOpen(row, col+1)) {
-                    // connect these two
-                    weightedQuickUnionUF.union((arrayRow * gridWidth) + arrayColumn,
-                            (arrayRow * gridWidth) + (arrayColumn + 1));
-                }
+        if (siteIndices == null) {
+            throw new NullPointerException("Site indices were null");
+        }
+
+        int[] batch = new int[BATCH_SIZE];
+        int batchSize = 0;
+        PrimitiveIterator.OfInt iterator = siteIndices.iterator();
+        while (iterator.hasNext()) {
+            batch[batchSize++] = iterator.nextInt();
+            if (batchSize == BATCH_SIZE) {
+                openAll(batch, batchSize);
+                batchSize = 0;
             }
+        }
+        openAll(batch, batchSize);
+    }
 
-            // Increment the number of open sites counter.
-            numberOfOpenSites++;
+    /*
+     * Open the first count sites of the array as a batch.
+     */
+    void openAll(int[] siteIndices, int count) {
 
-            // System.out.println("numberOfOpenSites: " + numberOfOpenSites);
+        // A site is out of range exactly when it or numberOfSites - 1 - site is negative.
+        int outOfRange = 0;
+        for (int i = 0; i < count; i++) {
+            outOfRange |= siteIndices[i] | (numberOfSites - 1 - siteIndices[i]);
+        }
+        if (outOfRange < 0) {
+            throw new IndexOutOfBoundsException();
+        }
 
+        for (int i = 0; i < count; i++) {
+            int site = siteIndices[i];
+            int row = site / gridWidth;
+            openSite(site, row + 1, site - row * gridWidth + 1);
         }
+    }
 
+    int gridWidth() {
+        return gridWidth;
     }
 
     public boolean isOpen(int row, int col) {
 
-        if ((row < 1) || (row > sitesGrid[0].length) || (col < 1) || (col > sitesGrid[0].length)) {
-            throw new IndexOutOfBoundsException();
-        }
+        validate(row, col);
 
-        return sitesGrid[row-1][col-1];
+        return isOpenSite((row - 1) * gridWidth + (col - 1));
     }
 
     public boolean isFull(int row, int col) {
 
-        if ((row < 1) || (row > sitesGrid[0].length) || (col < 1) || (col > sitesGrid[0].length)) {
-            throw new IndexOutOfBoundsException();
-        }
+        validate(row, col);
 
         /*
          * Check if the site corresponding to this row and column
-         * is connected to the top virtual row.
+         * is open and its tree touches the top row.
          */
-        int siteNumber = (row-1) * gridWidth + (col -1);
+        int siteNumber = (row - 1) * gridWidth + (col - 1);
 
-        if (siteNumber < gridWidth || siteNumber >= (numberOfSites - gridWidth)) {
-            /*
-             * For the top row  and bottom row that is connected to the top virtual site,
-             * we also have to check if it is open to be full.
-             */
-            return weightedQuickUnionUF.connected(siteNumber, topVirtualSiteLocation) && isOpen(row, col);
-        }
-        else {
-            return weightedQuickUnionUF.connected(siteNumber, topVirtualSiteLocation);
+        return isOpenSite(siteNumber) && (PackedUnionFind.flags(parent[find(siteNumber)]) & TOUCHES_TOP) != 0;
+
+    }
+
+    /**
+     * Write which sites of a row are open as a bitmap, bit (col - 1) % 64 of
+     * word (col - 1) / 64 being set when (row, col) is open. The bits are copied
+     * from the grid a word at a time.
+     *
+     * @param row row of the grid.
+     * @param out bitmap of at least (n + 63) / 64 words to write the row to.
+     */
+    public void openMask(int row, long[] out) {
+
+        validateRow(row, out);
+
+        copyRow(row, out);
+    }
+
+    /**
+     * Write which sites of a row are full as a bitmap laid out as by
+     * {@link #openMask(int, long[])}. The sites of a run of open sites in a row
+     * are all in the same cluster, so the union-find is asked once per run
+     * instead of once per site.
+     *
+     * @param row row of the grid.
+     * @param out bitmap of at least (n + 63) / 64 words to write the row to.
+     */
+    public void fullMask(int row, long[] out) {
+
+        validateRow(row, out);
+
+        int words = (gridWidth + 63) >>> 6;
+        if (numberOfFullSites == 0) {
+            Arrays.fill(out, 0, words, 0L);
+            return;
         }
 
+        copyRow(row, out);
+
+        int firstSite = (row - 1) * gridWidth;
+        // Whether the last run of the previous word reaches its top bit, and if so whether it is full.
+        boolean runContinues = false;
+        boolean runFull = false;
+        for (int w = 0; w < words; w++) {
+            long open = out[w];
+            long full = 0L;
+            while (open != 0) {
+                int start = Long.numberOfTrailingZeros(open);
+                // The lowest run of set bits: adding its lowest bit carries through the run and clears it.
+                long run = open & ~(open + (open & -open));
+                if (start != 0 || !runContinues) {
+                    int site = firstSite + (w << 6) + start;
+                    runFull = (PackedUnionFind.flags(parent[find(site)]) & TOUCHES_TOP) != 0;
+                }
+                if (runFull) {
+                    full |= run;
+                }
+                open &= ~run;
+                runContinues = run < 0;
+            }
+            if (out[w] == 0) {
+                runContinues = false;
+            }
+            out[w] = full;
+        }
     }
 
     public int numberOfOpenSites() {
         return numberOfOpenSites;
     }
 
+    /**
+     * Number of clusters of open sites, where a cluster is a set of
+     * open sites connected through open neighbours.
+     *
+     * @return number of clusters.
+     */
+    public int numberOfClusters() {
+        return numberOfClusters;
+    }
+
+    /**
+     * Number of open sites in the largest cluster.
+     *
+     * @return size of the largest cluster, or 0 if no site is open.
+     */
+    public int largestClusterSize() {
+        return largestClusterSize;
+    }
+
+    /**
+     * Number of open sites connected to the top row, that is the total size
+     * of the clusters touching the top row.
+     *
+     * @return number of full sites.
+     */
+    public int numberOfFullSites() {
+        return numberOfFullSites;
+    }
+
     public boolean percolates() {
 
-        /**
-         * For special case n = 1 when the grid is just a single cell,
-         * the system percolates if the one cell is open.
-         */
-        if (numberOfSites == 1) {
-            return isOpen(1, 1);
+        return percolates;
+
+    }
+
+    /**
+     * Site whose opening made the grid percolate.
+     *
+     * @return 0-based index (row - 1) * n + (col - 1) of the site, or -1 if the grid does not percolate.
+     */
+    public int percolationSite() {
+        return percolationSite;
+    }
+
+    /**
+     * Number of open sites right after the grid started to percolate.
+     *
+     * @return number of open sites at the point of percolation, or 0 if the grid does not percolate.
+     */
+    public int openSitesAtPercolation() {
+        return openSitesAtPercolation;
+    }
+
+    /**
+     * <p>
+     * A shortest path of open sites from the top row to the bottom row, found by
+     * a breadth first search from the open top row sites of the spanning clusters.
+     * The queue, visited bitset and the two bits per site recording the way back
+     * are kept for the next call, so a call allocates only the path it returns.
+     * </p>
+     *
+     * @return 0-based indices (row - 1) * n + (col - 1) of the sites of the path, top row first.
+     */
+    public int[] spanningPath() {
+
+        if (!percolates) {
+            throw new IllegalStateException("Grid does not percolate");
+        }
+
+        if (pathQueue == null) {
+            pathQueue = new int[Integer.highestOneBit(Math.max(4 * gridWidth - 1, 1)) << 1];
+            visitedSites = new long[openSites.length];
+            pathDirections = new long[(numberOfSites + 31) >>> 5];
         }
         else {
+            Arrays.fill(visitedSites, 0L);
+        }
+
+        // Start from the top row sites of the clusters that span the grid.
+        pathQueueHead = 0;
+        pathQueueTail = 0;
+        for (int site = 0; site < gridWidth; site++) {
+            if (isOpenSite(site) && PackedUnionFind.flags(parent[find(site)]) == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+                visit(site, FROM_ABOVE);
+            }
+        }
+
+        // The first bottom row site taken off the queue ends a shortest path.
+        int end;
+        while (true) {
+            int site = pathQueue[pathQueueHead];
+            pathQueueHead = (pathQueueHead + 1) & (pathQueue.length - 1);
+            if (site >= numberOfSites - gridWidth) {
+                end = site;
+                break;
+            }
+            int col = site % gridWidth;
+            visitIfOpen(site + gridWidth, FROM_ABOVE);
+            if (col > 0) {
+                visitIfOpen(site - 1, FROM_RIGHT);
+            }
+            if (col < gridWidth - 1) {
+                visitIfOpen(site + 1, FROM_LEFT);
+            }
+            if (site >= gridWidth) {
+                visitIfOpen(site - gridWidth, FROM_BELOW);
+            }
+        }
+
+        // Walk back to the top row, once to count the sites and once to list them.
+        int length = 1;
+        for (int site = end; site >= gridWidth; site = previousOnPath(site)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int site = end;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = site;
+            if (i > 0) {
+                site = previousOnPath(site);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * <p>
+     * Set a checkpoint that {@link #rollback()} returns the grid to.
+     * </p>
+     * <p>
+     * Until the checkpoint is rolled back, every site opened is logged and
+     * the union-find stops compressing paths, so that undoing the opens only
+     * has to pop the log. Finds still take O(log n) thanks to linking by size.
+     * Checkpoints can be nested.
+     * </p>
+     */
+    public void mark() {
 
-            return weightedQuickUnionUF.connected(topVirtualSiteLocation, bottomVirtualSiteLocation);
+        if (numberOfMarks * SAVED_VALUES == marks.length) {
+            marks = Arrays.copyOf(marks, Math.max(SAVED_VALUES, 2 * marks.length));
         }
 
+        int saved = numberOfMarks * SAVED_VALUES;
+        marks[saved] = undoLogSize;
+        marks[saved + 1] = numberOfOpenSites;
+        marks[saved + 2] = percolates ? 1 : 0;
+        marks[saved + 3] = numberOfClusters;
+        marks[saved + 4] = largestClusterSize;
+        marks[saved + 5] = numberOfFullSites;
+        marks[saved + 6] = percolationSite;
+        marks[saved + 7] = openSitesAtPercolation;
+        numberOfMarks++;
+    }
+
+    /**
+     * Undo every site opened since the last checkpoint and remove the checkpoint,
+     * in time proportional to the number of sites opened since.
+     */
+    public void rollback() {
+
+        if (numberOfMarks == 0) {
+            throw new IllegalStateException("No checkpoint to roll back to");
+        }
+
+        numberOfMarks--;
+        int saved = numberOfMarks * SAVED_VALUES;
+
+        while (undoLogSize > marks[saved]) {
+            undoLogSize--;
+            int index = undoIndices[undoLogSize];
+            if (index < 0) {
+                int site = ~index;
+                openSites[site >>> 6] &= ~(1L << site);
+            }
+            else {
+                parent[index] = undoValues[undoLogSize];
+            }
+        }
+
+        numberOfOpenSites = marks[saved + 1];
+        percolates = marks[saved + 2] == 1;
+        numberOfClusters = marks[saved + 3];
+        largestClusterSize = marks[saved + 4];
+        numberOfFullSites = marks[saved + 5];
+        percolationSite = marks[saved + 6];
+        openSitesAtPercolation = marks[saved + 7];
     }
 
     public static void main(String[] args) {
@@ -173,10 +448,10 @@ public class Percolation {
         int gridWidth = 5; // could equally use grid height
         Percolation percolationGrid = new Percolation(gridWidth);
         while (!percolationGrid.percolates()) {
-            int randomSite = StdRandom.uniform(1, percolationGrid.numberOfSites);
+            int randomSite = StdRandom.uniform(0, percolationGrid.numberOfSites);
            // System.out.println("random site: " + randomSite);
-            int row = randomSite / gridWidth;
-            int column = randomSite % gridWidth;
+            int row = (randomSite / gridWidth) + 1;
+            int column = (randomSite % gridWidth) + 1;
 
             // If not already open
             if (!percolationGrid.isOpen(row, column)) {
@@ -185,43 +460,239 @@ public class Percolation {
             }
         }
 
+        System.out.println("percolated at site " + percolationGrid.percolationSite() + " with "
+                + percolationGrid.openSitesAtPercolation() + " open sites");
+        System.out.println("spanning path = " + Arrays.toString(percolationGrid.spanningPath()));
 
     }
 
     /* Helper methods */
-    private void connectTopRowOfGridToTopVirtualSite() {
+    private void validate(int row, int col) {
+
+        if ((row < 1) || (row > gridWidth) || (col < 1) || (col > gridWidth)) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /*
+     * Visit the site if it is open and not visited yet.
+     */
+    private void visitIfOpen(int site, int direction) {
+
+        if (isOpenSite(site) && (visitedSites[site >>> 6] & (1L << site)) == 0) {
+            visit(site, direction);
+        }
+    }
 
-        for (int i = 0; i < gridWidth; i++) {
-            weightedQuickUnionUF.union(i, topVirtualSiteLocation);
+    /*
+     * Mark the site visited, record the direction back to the site it was reached
+     * from and add it to the queue, doubling the queue when it is full.
+     */
+    private void visit(int site, int direction) {
+
+        visitedSites[site >>> 6] |= 1L << site;
+        int shift = (site & 31) << 1;
+        pathDirections[site >>> 5] = (pathDirections[site >>> 5] & ~(3L << shift)) | ((long) direction << shift);
+
+        pathQueue[pathQueueTail] = site;
+        pathQueueTail = (pathQueueTail + 1) & (pathQueue.length - 1);
+        if (pathQueueTail == pathQueueHead) {
+            // Unroll the full ring into a queue twice as long, starting at 0.
+            int[] queue = new int[2 * pathQueue.length];
+            int firstPart = pathQueue.length - pathQueueHead;
+            System.arraycopy(pathQueue, pathQueueHead, queue, 0, firstPart);
+            System.arraycopy(pathQueue, 0, queue, firstPart, pathQueueHead);
+            pathQueueHead = 0;
+            pathQueueTail = pathQueue.length;
+            pathQueue = queue;
         }
     }
-    private void connectBottomRowOfGridToBottomVirtualSite() {
 
-        /* Start from the last element in the bottom row
-         * connect all elements in this row upto the first element
+    private int previousOnPath(int site) {
+
+        int direction = (int) (pathDirections[site >>> 5] >>> ((site & 31) << 1)) & 3;
+        switch (direction) {
+            case FROM_ABOVE:
+                return site - gridWidth;
+            case FROM_BELOW:
+                return site + gridWidth;
+            case FROM_LEFT:
+                return site - 1;
+            default:
+                return site + 1;
+        }
+    }
+
+    private void validateRow(int row, long[] out) {
+
+        if ((row < 1) || (row > gridWidth)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (out == null) {
+            throw new NullPointerException("Bitmap was null");
+        }
+        if (out.length < (gridWidth + 63) >>> 6) {
+            throw new IllegalArgumentException("Bitmap is too short for a row");
+        }
+    }
+
+    /*
+     * Open the site with the given index, row and column, unless it is open already.
+     */
+    private void openSite(int site, int row, int col) {
+
+        // If the site is already open, there is nothing to do.
+        if (isOpenSite(site)) {
+            return;
+        }
+
+        openSites[site >>> 6] |= 1L << site;
+        if (numberOfMarks > 0) {
+            log(~site, 0);
+        }
+
+        // A top or bottom row site starts out touching its edge of the grid.
+        int flags = 0;
+        if (row == 1) {
+            flags |= TOUCHES_TOP;
+        }
+        if (row == gridWidth) {
+            flags |= TOUCHES_BOTTOM;
+        }
+        setParent(site, PackedUnionFind.root(1, flags));
+        numberOfClusters++;
+        if ((flags & TOUCHES_TOP) != 0) {
+            numberOfFullSites++;
+        }
+
+        /* Check the four neighbours and create a union with them if they are open too.
+         * Four neighbours are present for each cell-except those at the edges.
+         * Four neighbours are up, down, left and right.
          */
-        int lastElement = numberOfSites - 1;
-        int firstElement = numberOfSites - gridWidth;
+        int root = site;
+        if (row > 1 && isOpenSite(site - gridWidth)) {
+            root = union(root, site - gridWidth);
+        }
+        if (row < gridWidth && isOpenSite(site + gridWidth)) {
+            root = union(root, site + gridWidth);
+        }
+        if (col > 1 && isOpenSite(site - 1)) {
+            root = union(root, site - 1);
+        }
+        if (col < gridWidth && isOpenSite(site + 1)) {
+            root = union(root, site + 1);
+        }
 
-        for (int i = lastElement; i >= firstElement; i--) {
-            weightedQuickUnionUF.union(i, bottomVirtualSiteLocation);
+        // Increment the number of open sites counter.
+        numberOfOpenSites++;
+
+        largestClusterSize = Math.max(largestClusterSize, PackedUnionFind.size(parent[root]));
+        if (!percolates && PackedUnionFind.flags(parent[root]) == (TOUCHES_TOP | TOUCHES_BOTTOM)) {
+            percolates = true;
+            percolationSite = site;
+            openSitesAtPercolation = numberOfOpenSites;
         }
     }
 
+    private boolean isOpenSite(int site) {
+        return (openSites[site >>> 6] & (1L << site)) != 0;
+    }
+
     /*
-     *
+     * Copy the open bits of a row to the bitmap, shifting each word of the row
+     * out of the two grid words it straddles, and clear the bits past the row.
      */
-    private void initialiseAllSitesBlockedGrid() {
+    private void copyRow(int row, long[] out) {
+
+        int firstSite = (row - 1) * gridWidth;
+        int words = (gridWidth + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            int start = firstSite + (w << 6);
+            int wordIndex = start >>> 6;
+            int shift = start & 63;
+            long bits = openSites[wordIndex] >>> shift;
+            if (shift != 0 && wordIndex + 1 < openSites.length) {
+                bits |= openSites[wordIndex + 1] << (64 - shift);
+            }
+            out[w] = bits;
+        }
 
-        sitesGrid = new boolean[gridWidth][gridWidth];
-        // Create the sites grid with all sites blocked
-        // The nested for loop will have a time complexity of O(n^2)
-        for (int i = 0; i < gridWidth; i++) {
-            for (int j = 0; j < gridWidth; j++) {
-                sitesGrid[i][j] = false;
+        int tail = gridWidth & 63;
+        if (tail != 0) {
+            out[words - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    /*
+     * Find the root of the tree containing the given site, halving
+     * the path on the way up by pointing every other site at its grandparent.
+     * Paths are left alone while a checkpoint is set, so there is nothing to undo.
+     */
+    private int find(int site) {
+
+        if (numberOfMarks > 0) {
+            while (parent[site] >= 0) {
+                site = parent[site];
             }
+            return site;
+        }
+
+        return PackedUnionFind.find(parent, site);
+    }
+
+    /*
+     * Merge the tree with the given root and the tree of the given site, hanging
+     * the smaller tree under the root of the larger one and merging their flags.
+     * Updates the cluster count and, when only one of the trees touches the top,
+     * the number of full sites. Returns the root of the merged tree.
+     */
+    private int union(int root, int otherSite) {
+
+        int otherRoot = find(otherSite);
+
+        if (root == otherRoot) {
+            return root;
+        }
+
+        int size = PackedUnionFind.size(parent[root]);
+        int otherSize = PackedUnionFind.size(parent[otherRoot]);
+        int flags = PackedUnionFind.flags(parent[root]) | PackedUnionFind.flags(parent[otherRoot]);
+
+        numberOfClusters--;
+        if ((PackedUnionFind.flags(parent[root]) & TOUCHES_TOP) == 0 && (PackedUnionFind.flags(parent[otherRoot]) & TOUCHES_TOP) != 0) {
+            numberOfFullSites += size;
+        }
+        else if ((PackedUnionFind.flags(parent[root]) & TOUCHES_TOP) != 0 && (PackedUnionFind.flags(parent[otherRoot]) & TOUCHES_TOP) == 0) {
+            numberOfFullSites += otherSize;
+        }
+
+        if (size < otherSize) {
+            int temp = root;
+            root = otherRoot;
+            otherRoot = temp;
         }
+        setParent(root, PackedUnionFind.root(size + otherSize, flags));
+        setParent(otherRoot, root);
+        return root;
+    }
+
+    private void setParent(int site, int value) {
 
+        if (numberOfMarks > 0) {
+            log(site, parent[site]);
+        }
+        parent[site] = value;
+    }
+
+    private void log(int index, int value) {
+
+        if (undoLogSize == undoIndices.length) {
+            undoIndices = Arrays.copyOf(undoIndices, Math.max(16, 2 * undoLogSize));
+            undoValues = Arrays.copyOf(undoValues, Math.max(16, 2 * undoLogSize));
+        }
+        undoIndices[undoLogSize] = index;
+        undoValues[undoLogSize] = value;
+        undoLogSize++;
     }
 
 }
@@ -1,63 +1,370 @@
-import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * @author Rabboni Rabi
  */
 public class PercolationStats {
 
-    private double[] openSitesProportionValues;
+    // Number of trials below which a task runs its trials instead of splitting further.
+    private static final int TRIALS_PER_TASK = 8;
+    // Number of trials launched at a time when running until a target precision.
+    private static final int TRIALS_PER_BATCH = 64;
+    // Critical value of the normal distribution for a 95% confidence interval.
+    private static final double CONFIDENCE_95 = 1.96;
+    // Number of bins of the histogram of the ratios of open sites.
+    private static final int HISTOGRAM_BINS = 256;
+    // Least time between two checkpoints of a campaign shard.
+    private static final long CHECKPOINT_MILLIS = 60000;
+
+    // Running mean and variance of the ratio of open sites at the point of percolation.
+    private RunningStatistics openSitesProportionStatistics;
     private int n;
-    private int trials;
+    // Opening schedule of each thread, reused from one trial to the next.
+    private ThreadLocal<SiteOpeningSchedule> schedules;
 
+    /* Lattice the trials run on, or null for the square site grid of Percolation. */
+    private Lattice lattice;
+    // Lattice grid of each thread, reset from one trial to the next.
+    private ThreadLocal<LatticePercolation> latticeGrids;
+
+    /* Moment of percolation of each trial, by trial index, or null when not recorded. */
+    private int[] percolationSites;
+    private int[] openSitesAtPercolation;
+
+    /**
+     * Runs the trials on one thread with a new master seed drawn on every call,
+     * so two instances run independent trials. Only
+     * {@link #PercolationStats(int, int, long, int)} reproduces a set of trials.
+     *
+     * @param n width of the nxn grid.
+     * @param trails number of trials.
+     */
     public PercolationStats(int n, int trails) {
 
+        this(n, trails, new SplittableRandom().nextLong(), 1);
+
+    }
+
+    /**
+     * Runs the trials on a pool of the given number of threads.
+     * Every trial draws from its own split of a {@link SplittableRandom}
+     * seeded with the given seed, so the results for a given seed, n and number
+     * of trials are the same whatever the number of threads.
+     *
+     * @param n width of the nxn grid.
+     * @param trails number of trials.
+     * @param seed master seed of the trials.
+     * @param parallelism number of threads to run the trials on.
+     */
+    public PercolationStats(int n, int trails, long seed, int parallelism) {
+
+        this(n, trails, seed, parallelism, false);
+
+    }
+
+    /**
+     * Runs the trials as {@link #PercolationStats(int, int, long, int)} does and,
+     * if asked to, records the moment each trial percolated at.
+     *
+     * @param n width of the nxn grid.
+     * @param trails number of trials.
+     * @param seed master seed of the trials.
+     * @param parallelism number of threads to run the trials on.
+     * @param recordMoments true to record the moment of percolation of every trial.
+     */
+    public PercolationStats(int n, int trails, long seed, int parallelism, boolean recordMoments) {
+
+        if (n <= 0 || trails <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Grid size, trials number or parallelism is not valid");
+        }
+
+        this.n = n;
+        if (recordMoments) {
+            percolationSites = new int[trails];
+            openSitesAtPercolation = new int[trails];
+        }
+        schedules = ThreadLocal.withInitial(() -> new SiteOpeningSchedule(n * n));
+        openSitesProportionStatistics = runTrials(trails, new SplittableRandom(seed), parallelism);
+
+    }
+
+    /**
+     * Runs the trials on the given lattice instead of the square site grid of
+     * {@link Percolation}, as site or bond percolation. The ratio recorded for a
+     * trial is the share of sites, or bonds, open at the point of percolation.
+     *
+     * @param lattice lattice of the grid.
+     * @param bondPercolation true to open bonds, false to open sites.
+     * @param n width of the n^d grid.
+     * @param trails number of trials.
+     * @param seed master seed of the trials.
+     * @param parallelism number of threads to run the trials on.
+     */
+    public PercolationStats(Lattice lattice, boolean bondPercolation, int n, int trails, long seed, int parallelism) {
+
+        if (lattice == null || n <= 0 || trails <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Lattice, grid size, trials number or parallelism is not valid");
+        }
+
         this.n = n;
-        this.trials = trails;
-        openSitesProportionValues = new double[trails];
-        calculateNumberOfOpenSitesProportionValues();
+        this.lattice = lattice;
+        latticeGrids = ThreadLocal.withInitial(() -> new LatticePercolation(lattice, n, bondPercolation));
+        schedules = ThreadLocal.withInitial(() -> new SiteOpeningSchedule(latticeGrids.get().numberOfElementSlots()));
+        openSitesProportionStatistics = runTrials(trails, new SplittableRandom(seed), parallelism);
+
+    }
+
+    /**
+     * Private constructor - Runs batches of trials until the half-width of the 95%
+     * confidence interval falls below epsilon or a budget runs out.
+     */
+    private PercolationStats(int n, double epsilon, int maxTrials, long maxMillis, long seed, int parallelism) {
+
+        if (n <= 0 || epsilon <= 0 || maxTrials <= 1 || maxMillis <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Grid size, precision, budget or parallelism is not valid");
+        }
+
+        this.n = n;
+        schedules = ThreadLocal.withInitial(() -> new SiteOpeningSchedule(n * n));
+        openSitesProportionStatistics = new RunningStatistics(0.0, 1.0, HISTOGRAM_BINS);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long deadline = System.nanoTime() + maxMillis * 1000000L;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            while (openSitesProportionStatistics.count() < maxTrials) {
+                int batchTrials = (int) Math.min(TRIALS_PER_BATCH, maxTrials - openSitesProportionStatistics.count());
+                // Each batch gets the next split of the master random, whatever the parallelism.
+                openSitesProportionStatistics.merge(pool.invoke(new TrialsTask(0, batchTrials, random.split())));
+
+                if (openSitesProportionStatistics.count() > 1 && confidenceHalfWidth() < epsilon) {
+                    break;
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+    }
+
+    /**
+     * Run trials until the 95% confidence interval of the mean is narrower than
+     * epsilon on either side, or until maxTrials trials have run or maxMillis
+     * milliseconds have passed, whichever comes first. Trials are launched in
+     * batches, so the number of trials run is a multiple of the batch size
+     * unless maxTrials cuts the last batch short.
+     *
+     * @param n width of the nxn grid.
+     * @param epsilon target half-width of the 95% confidence interval.
+     * @param maxTrials largest number of trials to run.
+     * @param maxMillis time budget in milliseconds.
+     * @param seed master seed of the trials.
+     * @param parallelism number of threads to run the trials on.
+     * @return statistics of the trials run.
+     */
+    public static PercolationStats withPrecision(int n, double epsilon, int maxTrials, long maxMillis,
+                                                 long seed, int parallelism) {
+        return new PercolationStats(n, epsilon, maxTrials, maxMillis, seed, parallelism);
+    }
+
+    /**
+     * Private constructor - Wraps the statistics of trials run elsewhere.
+     */
+    private PercolationStats(int n, RunningStatistics statistics) {
+
+        this.n = n;
+        schedules = ThreadLocal.withInitial(() -> new SiteOpeningSchedule(n * n));
+        openSitesProportionStatistics = statistics;
+
+    }
+
+    /**
+     * <p>
+     * Run the batches [firstBatch, endBatch) of the campaign with the given grid
+     * width and master seed, as one shard of it. Batch b runs a fixed number of
+     * trials drawing from the (b + 1)-th split of the master random, so the shards
+     * of a campaign can run in separate processes and be merged with
+     * {@link #mergeShards(List)}.
+     * </p>
+     * <p>
+     * The shard's {@link TrialSummary} is written to the checkpoint file
+     * periodically and when the shard finishes. If the file already exists, the
+     * shard resumes from it instead of starting over.
+     * </p>
+     *
+     * @param n width of the nxn grid.
+     * @param seed master seed of the campaign.
+     * @param firstBatch first batch of the shard.
+     * @param endBatch batch after the last batch of the shard.
+     * @param parallelism number of threads to run the trials on.
+     * @param checkpointFile file the shard's summary is kept in.
+     * @return statistics of the shard's trials.
+     * @throws IOException if the checkpoint file cannot be read or written.
+     */
+    public static PercolationStats runShard(int n, long seed, long firstBatch, long endBatch, int parallelism,
+                                            Path checkpointFile) throws IOException {
+
+        if (n <= 0 || firstBatch < 0 || endBatch <= firstBatch || parallelism <= 0) {
+            throw new IllegalArgumentException("Grid size, batch range or parallelism is not valid");
+        }
+
+        TrialSummary summary;
+        if (Files.exists(checkpointFile)) {
+            summary = TrialSummary.read(checkpointFile);
+            if (summary.gridWidth() != n || summary.seed() != seed || summary.trialsPerBatch() != TRIALS_PER_BATCH
+                    || summary.firstBatch() != firstBatch || summary.endBatch() > endBatch) {
+                throw new IllegalArgumentException("Checkpoint " + checkpointFile + " belongs to another shard");
+            }
+        }
+        else {
+            summary = new TrialSummary(n, seed, TRIALS_PER_BATCH, firstBatch, firstBatch,
+                    new RunningStatistics(0.0, 1.0, HISTOGRAM_BINS));
+        }
 
+        PercolationStats percolationStats = new PercolationStats(n, summary.statistics());
+
+        // Skip the splits of the batches before the first one left to run.
+        SplittableRandom random = new SplittableRandom(seed);
+        for (long b = 0; b < summary.endBatch(); b++) {
+            random.split();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long lastCheckpoint = System.nanoTime();
+            for (long b = summary.endBatch(); b < endBatch; b++) {
+                TrialsTask batchTask = percolationStats.new TrialsTask(0, TRIALS_PER_BATCH, random.split());
+                summary.merge(new TrialSummary(n, seed, TRIALS_PER_BATCH, b, b + 1, pool.invoke(batchTask)));
+
+                if (System.nanoTime() - lastCheckpoint >= CHECKPOINT_MILLIS * 1000000L) {
+                    summary.write(checkpointFile);
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        summary.write(checkpointFile);
+
+        return percolationStats;
+    }
+
+    /**
+     * Merge the summaries written by the shards of one campaign. Together the
+     * shards must cover a contiguous range of batches without overlapping.
+     * Counts, extremes and the histogram merge exactly. The mean and variance
+     * merge with Chan's formula, which only differs from a single run by rounding.
+     *
+     * @param shardFiles checkpoint files of the shards, in any order.
+     * @return statistics of all the trials of the shards.
+     * @throws IOException if a shard file cannot be read.
+     */
+    public static PercolationStats mergeShards(List<Path> shardFiles) throws IOException {
+
+        if (shardFiles == null || shardFiles.isEmpty()) {
+            throw new IllegalArgumentException("No shard files given");
+        }
+
+        List<TrialSummary> summaries = new ArrayList<TrialSummary>();
+        for (Path shardFile : shardFiles) {
+            summaries.add(TrialSummary.read(shardFile));
+        }
+        summaries.sort(Comparator.comparingLong(TrialSummary::firstBatch));
+
+        TrialSummary merged = summaries.get(0);
+        for (int i = 1; i < summaries.size(); i++) {
+            merged.merge(summaries.get(i));
+        }
+
+        return new PercolationStats(merged.gridWidth(), merged.statistics());
     }
 
     public double mean() {
-        return StdStats.mean(openSitesProportionValues);
+        return openSitesProportionStatistics.mean();
     }
 
     public double stddev() {
-        return StdStats.stddev(openSitesProportionValues);
+        return openSitesProportionStatistics.stddev();
     }
 
     public double confidenceLo() {
 
-        double confidenceLo = mean() - ((1.9 * stddev())/Math.sqrt(trials));
+        double confidenceLo = mean() - confidenceHalfWidth();
 
         return confidenceLo;
     }
 
     public double confidenceHi() {
 
-        double confidenceHi = mean() + ((1.9 * stddev())/Math.sqrt(trials));
+        double confidenceHi = mean() + confidenceHalfWidth();
 
         return confidenceHi;
     }
 
+    /**
+     * Number of trials run, which can be fewer than asked for
+     * when running until a target precision.
+     *
+     * @return number of trials.
+     */
+    public int trials() {
+        return (int) openSitesProportionStatistics.count();
+    }
+
+    /**
+     * Site whose opening made the grid percolate, for every trial.
+     *
+     * @return 0-based site index (row - 1) * n + (col - 1) by trial, or null if moments were not recorded.
+     */
+    public int[] percolationSites() {
+        return percolationSites == null ? null : Arrays.copyOf(percolationSites, percolationSites.length);
+    }
+
+    /**
+     * Number of sites open when the grid started to percolate, for every trial.
+     *
+     * @return number of open sites by trial, or null if moments were not recorded.
+     */
+    public int[] openSitesAtPercolation() {
+        return openSitesAtPercolation == null ? null
+                : Arrays.copyOf(openSitesAtPercolation, openSitesAtPercolation.length);
+    }
+
     public static void main(String[] args) {
-        // Get the size n of nxn grid and the number of trials
-        int n = 0, trials = 0;
+        // Get the size n of nxn grid, the number of trials and optionally the number of threads
+        int n = 0, trials = 0, parallelism = 1;
         try {
             n = Integer.parseInt(args[0]);
             trials = Integer.parseInt(args[1]);
+            if (args.length > 2) {
+                parallelism = Integer.parseInt(args[2]);
+            }
         }
         catch (NumberFormatException nfe) {
             System.out.println("Enter valid grid size and trials number.");
         }
 
-        if (n <= 0 || trials <= 0) {
-            throw new IllegalArgumentException("Grid size or trials number is not valid");
+        if (n <= 0 || trials <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Grid size, trials number or parallelism is not valid");
         }
 
         // For testing
-        PercolationStats percolationStats = new PercolationStats(n, trials);
+        PercolationStats percolationStats = new PercolationStats(n, trials, new SplittableRandom().nextLong(), parallelism);
         System.out.println("mean = " + percolationStats.mean());
         System.out.println("stddev = " + percolationStats.stddev());
         System.out.println("95% confidence interval = [" + percolationStats.confidenceLo() + ", ["
@@ -67,27 +374,32 @@ public class PercolationStats {
     }
 
     /**
-     * Method that initialises a grid of size nxn
-     * for given number of trials and populates
-     * an array with ratio of open sites to total number of sites
-     * for each trial.
+     * Runs a single trial on a new nxn grid, recording its moment of
+     * percolation if moments are recorded.
+     *
+     * @param random random source of the trial.
+     * @param trial index of the trial.
+     * @return ratio of open sites to total number of sites at the point of percolation.
      */
-    private void calculateNumberOfOpenSitesProportionValues() {
+    private double runTrial(SplittableRandom random, int trial) {
 
-        int totalNumberOfSites = n * n;
+        if (lattice != null) {
+            return runLatticeTrial(random);
+        }
 
-        // For each trial
-        for (int i = 0; i < trials; i++) {
+        int totalNumberOfSites = n * n;
 
-            // Initialise a nxn percolation grid
-            Percolation percolationGrid = new Percolation(n);
-            // Get number of open sites at point of percolation
-            int numberOfOpenSites = openSitesUntilPercolation(percolationGrid, n);
+        // Initialise a nxn percolation grid
+        Percolation percolationGrid = new Percolation(n);
+        // Get number of open sites at point of percolation
+        int numberOfOpenSites = openSitesUntilPercolation(percolationGrid, n, random);
 
-            // Add this to the array containing number of open sites for each trial
-            openSitesProportionValues[i] = (float) numberOfOpenSites / (float) totalNumberOfSites;
+        if (percolationSites != null) {
+            percolationSites[trial] = percolationGrid.percolationSite();
+            openSitesAtPercolation[trial] = percolationGrid.openSitesAtPercolation();
         }
 
+        return (float) numberOfOpenSites / (float) totalNumberOfSites;
     }
 
 
@@ -95,15 +407,21 @@ public class PercolationStats {
      * Helper method that keeps randomly opening sites
      * in a given fully blocked grid until percolation
      * happens from the top to bottom.
+     * Sites are drawn from a random opening schedule, so every
+     * draw opens a site that was still blocked.
      * @param percolationGrid percolation grid of size nxn.
      * @param gridWidth Width of the nxn grid: n;
+     * @param random random source of the trial.
      * @return number of open sites at the point of percolation.
      */
-    private int openSitesUntilPercolation(Percolation percolationGrid, int gridWidth) {
+    private int openSitesUntilPercolation(Percolation percolationGrid, int gridWidth, SplittableRandom random) {
+
+        SiteOpeningSchedule schedule = schedules.get();
+        schedule.reset();
 
         while (!percolationGrid.percolates()) {
-            // Generate a random number between 0 and number of sites - 1
-            int randomSite = StdRandom.uniform(0, gridWidth*gridWidth);
+            // Draw a site between 0 and number of sites - 1 that is not open yet
+            int randomSite = schedule.nextSite(random);
             // Increment row and column by 1 since
             // in this program requirement the grid indices are from (1,1) to (n,n)
             int row = (randomSite / gridWidth) + 1;
@@ -117,4 +435,95 @@ public class PercolationStats {
         return percolationGrid.numberOfOpenSites();
     }
 
+    /**
+     * Runs a single trial on the lattice grid of this thread.
+     *
+     * @param random random source of the trial.
+     * @return ratio of open elements to total number of elements at the point of percolation.
+     */
+    private double runLatticeTrial(SplittableRandom random) {
+
+        LatticePercolation latticeGrid = latticeGrids.get();
+        latticeGrid.reset();
+        SiteOpeningSchedule schedule = schedules.get();
+        schedule.reset();
+
+        // Bond slots that leave the grid are drawn too but open nothing.
+        while (!latticeGrid.percolates()) {
+            latticeGrid.open(schedule.nextSite(random));
+        }
+
+        return (double) latticeGrid.numberOfOpenElements() / latticeGrid.numberOfElements();
+    }
+
+    /**
+     * Runs the given number of trials on a pool of the given number of threads.
+     *
+     * @param trails number of trials.
+     * @param random master random the trials are split from.
+     * @param parallelism number of threads to run the trials on.
+     * @return statistics of the trials.
+     */
+    private RunningStatistics runTrials(int trails, SplittableRandom random, int parallelism) {
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new TrialsTask(0, trails, random));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Half-width of the 95% confidence interval of the mean.
+     */
+    private double confidenceHalfWidth() {
+        return (CONFIDENCE_95 * stddev()) / Math.sqrt(trials());
+    }
+
+    /**
+     * Inner class - Task running the trials in the range [from, to) and
+     * returning the statistics of their ratios of open sites.
+     * The range is always split at the same points, the left half always
+     * gets the split of the random and the halves are merged left to right,
+     * so the statistics depend only on the master seed and the number of
+     * trials, not on the scheduling.
+     */
+    private class TrialsTask extends RecursiveTask<RunningStatistics> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        TrialsTask(int from, int to, SplittableRandom random) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected RunningStatistics compute() {
+
+            if (to - from <= TRIALS_PER_TASK) {
+                RunningStatistics statistics = new RunningStatistics(0.0, 1.0, HISTOGRAM_BINS);
+                for (int i = from; i < to; i++) {
+                    statistics.add(runTrial(random.split(), i));
+                }
+                return statistics;
+            }
+
+            int middle = (from + to) >>> 1;
+            TrialsTask left = new TrialsTask(from, middle, random.split());
+            TrialsTask right = new TrialsTask(middle, to, random);
+            invokeAll(left, right);
+
+            RunningStatistics statistics = left.join();
+            statistics.merge(right.join());
+            return statistics;
+        }
+    }
+
 }
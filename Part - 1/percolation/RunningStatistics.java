@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Online mean and variance of a stream of values in constant memory,
+ * using Welford's update. Two accumulators over separate parts of a stream
+ * can be merged into the accumulator of the whole stream.
+ * </p>
+ * <p>
+ * Optionally the values are also counted in a histogram of equal width bins
+ * over a fixed range. Values outside the range are counted in the first or
+ * last bin.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class RunningStatistics {
+
+    private long count = 0;
+    private double sum = 0.0;
+    // Sum of the squared differences from the current mean.
+    private double m2 = 0.0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /* Histogram, or null when not counting one. */
+    private double histogramLow;
+    private double histogramHigh;
+    private long[] histogram;
+
+    public RunningStatistics() {
+    }
+
+    /**
+     * Accumulator that also counts the values in a histogram.
+     *
+     * @param low lower end of the histogram range.
+     * @param high upper end of the histogram range.
+     * @param bins number of bins.
+     */
+    public RunningStatistics(double low, double high, int bins) {
+
+        if (!(low < high) || bins <= 0) {
+            throw new IllegalArgumentException("Invalid histogram range or number of bins");
+        }
+
+        histogramLow = low;
+        histogramHigh = high;
+        histogram = new long[bins];
+    }
+
+    /*
+     * Accumulator restored from its saved state.
+     */
+    RunningStatistics(long count, double sum, double m2, double min, double max,
+                      double low, double high, long[] histogram) {
+
+        this.count = count;
+        this.sum = sum;
+        this.m2 = m2;
+        this.min = min;
+        this.max = max;
+        this.histogramLow = low;
+        this.histogramHigh = high;
+        this.histogram = histogram;
+    }
+
+    public void add(double value) {
+
+        double delta = value - mean();
+        count++;
+        sum += value;
+        m2 += count == 1 ? 0.0 : delta * (value - sum / count);
+
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        if (histogram != null) {
+            histogram[bin(value)]++;
+        }
+    }
+
+    /**
+     * Add the values seen by another accumulator to this one,
+     * as if they had been added here one by one.
+     *
+     * @param other accumulator to merge into this one.
+     */
+    public void merge(RunningStatistics other) {
+
+        if (histogram != null || other.histogram != null) {
+            if (histogram == null || other.histogram == null || histogram.length != other.histogram.length
+                    || histogramLow != other.histogramLow || histogramHigh != other.histogramHigh) {
+                throw new IllegalArgumentException("Histograms of the accumulators do not match");
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            sum = other.sum;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+
+        long mergedCount = count + other.count;
+        double delta = other.mean() - mean();
+        m2 += other.m2 + delta * delta * ((double) count * other.count / mergedCount);
+        sum += other.sum;
+        count = mergedCount;
+
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double sum() {
+        return sum;
+    }
+
+    public double mean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Sample variance of the values, dividing by count - 1.
+     *
+     * @return sample variance, or NaN with fewer than two values.
+     */
+    public double variance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double stddev() {
+        return Math.sqrt(variance());
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Counts of the histogram bins.
+     *
+     * @return copy of the bin counts, or null when no histogram is counted.
+     */
+    public long[] histogram() {
+        return histogram == null ? null : Arrays.copyOf(histogram, histogram.length);
+    }
+
+    double m2() {
+        return m2;
+    }
+
+    double histogramLow() {
+        return histogramLow;
+    }
+
+    double histogramHigh() {
+        return histogramHigh;
+    }
+
+    private int bin(double value) {
+
+        int bin = (int) ((value - histogramLow) / (histogramHigh - histogramLow) * histogram.length);
+        return Math.max(0, Math.min(histogram.length - 1, bin));
+    }
+
+}
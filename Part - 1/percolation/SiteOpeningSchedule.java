@@ -0,0 +1,85 @@
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * <p>
+ * Random order in which to open the sites of a grid, generated lazily
+ * by a Fisher-Yates shuffle. Every call to {@link #nextSite(SplittableRandom)}
+ * draws one random number and returns a site that has not been returned
+ * before, so a trial never wastes a draw on an already open site.
+ * </p>
+ * <p>
+ * The site array is allocated once and is the only one, one int per site.
+ * {@link #reset()} puts back the sites the previous trial moved, which costs as
+ * much as the sites that trial drew rather than the whole grid, and leaves the
+ * schedule as if it had just been created.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class SiteOpeningSchedule {
+
+    private int[] sites;
+    private int drawn = 0;
+
+    public SiteOpeningSchedule(int numberOfSites) {
+
+        if (numberOfSites <= 0) {
+            throw new IllegalArgumentException("Invalid number of sites passed");
+        }
+
+        sites = new int[numberOfSites];
+        for (int i = 0; i < numberOfSites; i++) {
+            sites[i] = i;
+        }
+    }
+
+    public boolean hasNext() {
+        return drawn < sites.length;
+    }
+
+    public int numberOfSites() {
+        return sites.length;
+    }
+
+    /**
+     * Draw the next site of the order.
+     *
+     * @param random random source of the trial.
+     * @return a site between 0 and number of sites - 1 not drawn since the last reset.
+     */
+    public int nextSite(SplittableRandom random) {
+
+        if (drawn == sites.length) {
+            throw new NoSuchElementException("Every site has already been drawn");
+        }
+
+        // Pick one of the sites not drawn yet and swap it to the front of the undrawn part.
+        int randomIndex = drawn + random.nextInt(sites.length - drawn);
+        int site = sites[randomIndex];
+        sites[randomIndex] = sites[drawn];
+        sites[drawn] = site;
+        drawn++;
+
+        return site;
+    }
+
+    /**
+     * Start a new order. Positions below the number of sites drawn hold the drawn
+     * sites, and a position from there on was only ever swapped if its own site was
+     * drawn, so putting back every drawn site and the front of the array restores
+     * every position. The next order then depends only on the random it is drawn with.
+     */
+    public void reset() {
+
+        for (int i = 0; i < drawn; i++) {
+            int site = sites[i];
+            if (site >= drawn) {
+                sites[site] = site;
+            }
+            sites[i] = i;
+        }
+        drawn = 0;
+    }
+
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Decides whether a grid percolates from its first row to its last row
+ * while reading the grid one row at a time, in memory proportional to the
+ * width of the grid. Grids too large to hold as a {@link Percolation} can
+ * be checked this way.
+ * </p>
+ * <p>
+ * Clusters are labelled with the Hoshen-Kopelman scheme: only the labels of
+ * the previous row are kept, together with whether each label is connected to
+ * the top row. Each new row is labelled against the previous one with a small
+ * union-find over at most two rows of labels, then relabelled compactly.
+ * </p>
+ * <p>
+ * A row is given as a bitmap of ceil(n / 64) longs where bit c % 64 of word
+ * c / 64 is set if site c of the row is open.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class StreamingPercolation {
+
+    private static final int BLOCKED = -1;
+
+    private int gridWidth;
+    private int wordsPerRow;
+    private long rowsRead = 0;
+
+    /* Compact label of each site of the previous row, or BLOCKED. */
+    private int[] labels;
+    /* Union-find over the labels of the previous row, in [0, n), and the
+       provisional labels of the current row, in [n, 2n). */
+    private int[] parent;
+    private boolean[] connectedToTop;
+    // New compact label of each root while a row is relabelled.
+    private int[] relabel;
+    // Top flag of each new compact label while a row is relabelled.
+    private boolean[] labelConnectedToTop;
+
+    private boolean percolates = false;
+    // Set once a row has no site connected to the top, after which no later row can have one.
+    private boolean cutOff = false;
+
+    public StreamingPercolation(int n) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid size of grid passed");
+        }
+
+        gridWidth = n;
+        wordsPerRow = (n + 63) >>> 6;
+        labels = new int[n];
+        parent = new int[2 * n];
+        connectedToTop = new boolean[2 * n];
+        relabel = new int[2 * n];
+        labelConnectedToTop = new boolean[n];
+        Arrays.fill(relabel, BLOCKED);
+    }
+
+    /**
+     * Read the next row of the grid.
+     *
+     * @param rowBits bitmap of the open sites of the row.
+     */
+    public void addRow(long[] rowBits) {
+
+        if (rowBits == null || rowBits.length < wordsPerRow) {
+            throw new IllegalArgumentException("Row bitmap must hold " + wordsPerRow + " words");
+        }
+
+        rowsRead++;
+        if (cutOff) {
+            return;
+        }
+
+        boolean firstRow = rowsRead == 1;
+
+        // Label the row against the previous one with provisional labels n + c.
+        for (int c = 0; c < gridWidth; c++) {
+
+            if (!isOpen(rowBits, c)) {
+                continue;
+            }
+
+            int label = gridWidth + c;
+            parent[label] = label;
+            connectedToTop[label] = firstRow;
+
+            if (c > 0 && isOpen(rowBits, c - 1)) {
+                union(label, label - 1);
+            }
+            if (!firstRow && labels[c] != BLOCKED) {
+                union(label, labels[c]);
+            }
+        }
+
+        // Give every cluster of the row a compact label in [0, n) for the next row.
+        int nextLabel = 0;
+        boolean rowConnectedToTop = false;
+        for (int c = 0; c < gridWidth; c++) {
+
+            if (!isOpen(rowBits, c)) {
+                labels[c] = BLOCKED;
+                continue;
+            }
+
+            int root = find(gridWidth + c);
+            if (relabel[root] == BLOCKED) {
+                labelConnectedToTop[nextLabel] = connectedToTop[root];
+                relabel[root] = nextLabel++;
+            }
+            labels[c] = relabel[root];
+            rowConnectedToTop |= connectedToTop[root];
+        }
+
+        // Reset the union-find to the compact labels, carrying their top flags.
+        for (int c = 0; c < gridWidth; c++) {
+            if (labels[c] != BLOCKED) {
+                relabel[find(gridWidth + c)] = BLOCKED;
+            }
+        }
+        for (int label = 0; label < nextLabel; label++) {
+            parent[label] = label;
+            connectedToTop[label] = labelConnectedToTop[label];
+        }
+
+        percolates = rowConnectedToTop;
+        cutOff = !rowConnectedToTop;
+    }
+
+    /**
+     * Whether an open path leads from the first row to the last row read so far.
+     *
+     * @return true if the rows read so far percolate.
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    public long rowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Decide whether the nxn grid stored in the given bitmap file percolates.
+     * The file holds the rows one after another, each as ceil(n / 64) little-endian
+     * longs, and is read through memory mappings of as many whole rows as fit.
+     *
+     * @param bitmapFile file holding the grid.
+     * @param n width and height of the grid.
+     * @return true if the grid percolates.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean percolates(Path bitmapFile, int n) throws IOException {
+
+        StreamingPercolation streamingPercolation = new StreamingPercolation(n);
+        long bytesPerRow = 8L * streamingPercolation.wordsPerRow;
+        long rowsPerMapping = Math.max(1, Integer.MAX_VALUE / bytesPerRow);
+        long[] row = new long[streamingPercolation.wordsPerRow];
+
+        try (FileChannel channel = FileChannel.open(bitmapFile, StandardOpenOption.READ)) {
+
+            if (channel.size() != bytesPerRow * n) {
+                throw new IllegalArgumentException("Bitmap file does not hold a grid of size " + n);
+            }
+
+            long rowsLeft = n;
+            long position = 0;
+            while (rowsLeft > 0 && !streamingPercolation.cutOff) {
+
+                long rows = Math.min(rowsLeft, rowsPerMapping);
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, rows * bytesPerRow);
+                LongBuffer words = mapping.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+
+                for (long i = 0; i < rows && !streamingPercolation.cutOff; i++) {
+                    words.get(row);
+                    streamingPercolation.addRow(row);
+                }
+
+                position += rows * bytesPerRow;
+                rowsLeft -= rows;
+            }
+        }
+
+        return streamingPercolation.rowsRead == n && streamingPercolation.percolates();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        // Get the bitmap file and the size n of the nxn grid it holds
+        Path bitmapFile = Paths.get(args[0]);
+        int n = Integer.parseInt(args[1]);
+
+        System.out.println("percolates = " + percolates(bitmapFile, n));
+    }
+
+    /* Helper methods */
+    private static boolean isOpen(long[] rowBits, int col) {
+        return (rowBits[col >>> 6] & (1L << col)) != 0;
+    }
+
+    private int find(int label) {
+
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private void union(int label, int otherLabel) {
+
+        int root = find(label);
+        int otherRoot = find(otherLabel);
+
+        if (root != otherRoot) {
+            parent[otherRoot] = root;
+            connectedToTop[root] |= connectedToTop[otherRoot];
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * <p>
+ * Compact binary summary of a range of batches of a {@link PercolationStats}
+ * campaign. It is what a running campaign checkpoints and resumes from,
+ * and what independent shards of a campaign are merged from.
+ * </p>
+ * <p>
+ * A campaign is identified by its grid width, master seed and batch size.
+ * Batch b of a campaign draws from the (b + 1)-th split of a
+ * {@link java.util.SplittableRandom} seeded with the master seed, so a batch
+ * gives the same results in whichever process and shard it runs. A summary
+ * covers the batches [firstBatch, endBatch).
+ * </p>
+ * <p>
+ * The file holds, big-endian: magic, version, n, seed, trials per batch,
+ * first batch, end batch, count, sum, M2, min, max, number of histogram bins
+ * and, if there are any, the histogram range and the bin counts.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class TrialSummary {
+
+    private static final int MAGIC = 0x50435354;
+    private static final int VERSION = 1;
+
+    private int gridWidth;
+    private long seed;
+    private int trialsPerBatch;
+    private long firstBatch;
+    private long endBatch;
+    private RunningStatistics statistics;
+
+    public TrialSummary(int n, long seed, int trialsPerBatch, long firstBatch, long endBatch,
+                        RunningStatistics statistics) {
+
+        if (n <= 0 || trialsPerBatch <= 0 || firstBatch < 0 || endBatch < firstBatch || statistics == null) {
+            throw new IllegalArgumentException("Invalid campaign or batch range passed");
+        }
+
+        this.gridWidth = n;
+        this.seed = seed;
+        this.trialsPerBatch = trialsPerBatch;
+        this.firstBatch = firstBatch;
+        this.endBatch = endBatch;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Merge the summary of the batches that follow this summary's batches
+     * into this summary.
+     *
+     * @param next summary starting at the end batch of this one, from the same campaign.
+     */
+    public void merge(TrialSummary next) {
+
+        if (next.gridWidth != gridWidth || next.seed != seed || next.trialsPerBatch != trialsPerBatch) {
+            throw new IllegalArgumentException("Summaries belong to different campaigns");
+        }
+        if (next.firstBatch != endBatch) {
+            throw new IllegalArgumentException("Summary of batches [" + next.firstBatch + ", " + next.endBatch
+                    + ") does not follow batches [" + firstBatch + ", " + endBatch + ")");
+        }
+
+        statistics.merge(next.statistics);
+        endBatch = next.endBatch;
+    }
+
+    public int gridWidth() {
+        return gridWidth;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public int trialsPerBatch() {
+        return trialsPerBatch;
+    }
+
+    public long firstBatch() {
+        return firstBatch;
+    }
+
+    public long endBatch() {
+        return endBatch;
+    }
+
+    public RunningStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Write the summary to the given file. The summary is written to a temporary
+     * file next to it first and moved over it, so a crash never leaves half a summary.
+     *
+     * @param file file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(gridWidth);
+            out.writeLong(seed);
+            out.writeInt(trialsPerBatch);
+            out.writeLong(firstBatch);
+            out.writeLong(endBatch);
+            out.writeLong(statistics.count());
+            out.writeDouble(statistics.sum());
+            out.writeDouble(statistics.m2());
+            out.writeDouble(statistics.min());
+            out.writeDouble(statistics.max());
+
+            long[] histogram = statistics.histogram();
+            if (histogram == null) {
+                out.writeInt(0);
+            }
+            else {
+                out.writeInt(histogram.length);
+                out.writeDouble(statistics.histogramLow());
+                out.writeDouble(statistics.histogramHigh());
+                for (long binCount : histogram) {
+                    out.writeLong(binCount);
+                }
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a summary written by {@link #write(Path)}.
+     *
+     * @param file file to read.
+     * @return the summary.
+     * @throws IOException if the file cannot be read or is not a summary.
+     */
+    public static TrialSummary read(Path file) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a trial summary");
+            }
+
+            int n = in.readInt();
+            long seed = in.readLong();
+            int trialsPerBatch = in.readInt();
+            long firstBatch = in.readLong();
+            long endBatch = in.readLong();
+            long count = in.readLong();
+            double sum = in.readDouble();
+            double m2 = in.readDouble();
+            double min = in.readDouble();
+            double max = in.readDouble();
+
+            double low = 0.0;
+            double high = 0.0;
+            long[] histogram = null;
+            int bins = in.readInt();
+            if (bins > 0) {
+                low = in.readDouble();
+                high = in.readDouble();
+                histogram = new long[bins];
+                for (int i = 0; i < bins; i++) {
+                    histogram[i] = in.readLong();
+                }
+            }
+            return new TrialSummary(n, seed, trialsPerBatch, firstBatch, endBatch,
+                    new RunningStatistics(count, sum, m2, min, max, low, high, histogram));
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+#!/bin/sh
+# Build the benchmarks and run them with the GC and allocation profiler,
+# writing the results as JSON. Extra arguments are passed on to JMH,
+# for example a benchmark name pattern or -p n=100.
+#
+#   ./run-benchmarks.sh results/baseline.json
+#   ./run-benchmarks.sh results/after.json 'PercolationTrialBenchmark.openAll' -p n=1000
+set -e
+cd "$(dirname "$0")"
+
+results="${1:-results/latest.json}"
+[ $# -gt 0 ] && shift
+mkdir -p "$(dirname "$results")"
+
+mvn -B -q package ${ALGS4_JAR:+-Dalgs4.jar="$ALGS4_JAR"}
+java -cp "target/benchmarks.jar${ALGS4_JAR:+:$ALGS4_JAR}" org.openjdk.jmh.Main \
+    -prof gc -rf json -rff "$results" "$@"
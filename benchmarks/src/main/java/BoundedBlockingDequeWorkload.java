@@ -0,0 +1,42 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import deques.benchmarks.BufferWorkload;
+
+/**
+ * Buffer workload on a {@link BoundedBlockingDeque}.
+ *
+ * @author Rabboni Rabi
+ */
+public class BoundedBlockingDequeWorkload implements BufferWorkload {
+
+    private static final int CAPACITY = 1024;
+    private static final int BATCH_SIZE = 64;
+    private static final Integer TASK = 1;
+
+    private BoundedBlockingDeque<Integer> deque = new BoundedBlockingDeque<>(CAPACITY);
+    // Batch list of each consumer, cleared and reused.
+    private ThreadLocal<List<Integer>> batches = ThreadLocal.withInitial(() -> new ArrayList<>(BATCH_SIZE));
+
+    public BoundedBlockingDequeWorkload() {
+    }
+
+    @Override
+    public boolean produce() throws InterruptedException {
+        return deque.offerLast(TASK, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int consume() throws InterruptedException {
+
+        List<Integer> batch = batches.get();
+        batch.clear();
+        int count = deque.drainTo(batch, BATCH_SIZE);
+        if (count == 0 && deque.pollFirst(1, TimeUnit.MILLISECONDS) != null) {
+            count = 1;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,43 @@
+import java.util.SplittableRandom;
+
+import percolation.benchmarks.LatticeWorkload;
+
+/**
+ * Workload of the lattice benchmarks: one {@link LatticePercolation} grid and
+ * the order its elements are opened in, both reset between trials as the
+ * trials of {@link PercolationStats} reset them.
+ *
+ * @author Rabboni Rabi
+ */
+public class LatticePercolationWorkload implements LatticeWorkload {
+
+    private LatticePercolation grid;
+    private SiteOpeningSchedule schedule;
+    private SplittableRandom random;
+    private long seed;
+
+    public LatticePercolationWorkload(String lattice, int n, boolean bondPercolation, long seed) {
+
+        this.seed = seed;
+        grid = new LatticePercolation(Lattice.valueOf(lattice), n, bondPercolation);
+        schedule = new SiteOpeningSchedule(grid.numberOfElementSlots());
+    }
+
+    @Override
+    public void newGrid() {
+
+        grid.reset();
+        schedule.reset();
+        random = new SplittableRandom(seed++);
+    }
+
+    @Override
+    public double runTrial() {
+
+        while (!grid.percolates()) {
+            grid.open(schedule.nextSite(random));
+        }
+        return (double) grid.numberOfOpenElements() / grid.numberOfElements();
+    }
+
+}
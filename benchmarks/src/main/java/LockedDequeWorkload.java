@@ -0,0 +1,45 @@
+import deques.benchmarks.TaskDequeWorkload;
+
+/**
+ * Task deque workload on a {@link Deque} behind one lock, the baseline
+ * the work-stealing deque is compared with.
+ *
+ * @author Rabboni Rabi
+ */
+public class LockedDequeWorkload implements TaskDequeWorkload {
+
+    // Number of tasks the owner keeps in the deque before taking one back each step.
+    private static final int OWNER_BACKLOG = 64;
+    private static final int NUMBER_OF_TASKS = 1024;
+
+    private Deque<Integer> deque = new Deque<>();
+    // Tasks allocated once, so the benchmark does not time boxing.
+    private Integer[] tasks = new Integer[NUMBER_OF_TASKS];
+    private int nextTask = 0;
+
+    public LockedDequeWorkload() {
+        for (int i = 0; i < NUMBER_OF_TASKS; i++) {
+            tasks[i] = i;
+        }
+    }
+
+    @Override
+    public Object ownerStep() {
+
+        Integer task = tasks[nextTask];
+        nextTask = (nextTask + 1) & (NUMBER_OF_TASKS - 1);
+        synchronized (deque) {
+            deque.addLast(task);
+            return deque.size() > OWNER_BACKLOG ? deque.removeLast() : null;
+        }
+    }
+
+    @Override
+    public Object stealStep() {
+
+        synchronized (deque) {
+            return deque.isEmpty() ? null : deque.removeFirst();
+        }
+    }
+
+}
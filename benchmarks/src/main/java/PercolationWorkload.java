@@ -0,0 +1,115 @@
+import java.util.SplittableRandom;
+
+import percolation.benchmarks.GridWorkload;
+
+/**
+ * <p>
+ * Workload of the percolation benchmarks. It lives in the default package
+ * next to the assignment classes, which it is the only benchmark code to touch.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public class PercolationWorkload implements GridWorkload {
+
+    // Number of random sites isFull() is asked about in turn.
+    private static final int NUMBER_OF_QUERIES = 1 << 16;
+
+    private int gridWidth;
+    private long seed;
+
+    /* New grid the opening benchmarks are timed on, the order its sites are
+       opened in and the random the order is drawn with. */
+    private Percolation openGrid;
+    private SiteOpeningSchedule schedule;
+    private SplittableRandom openRandom;
+
+    /* Percolating grid the queries are timed on. */
+    private Percolation queryGrid;
+    private int[] queryRows;
+    private int[] queryCols;
+    private int nextQuery = 0;
+    private long[] rowMask;
+    private int nextRow = 1;
+
+    public PercolationWorkload(int n, long seed) {
+
+        this.gridWidth = n;
+        this.seed = seed;
+
+        schedule = new SiteOpeningSchedule(n * n);
+
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        queryGrid = new Percolation(n);
+        SiteOpeningSchedule querySchedule = new SiteOpeningSchedule(n * n);
+        while (!queryGrid.percolates()) {
+            int site = querySchedule.nextSite(random);
+            queryGrid.open(site / n + 1, site % n + 1);
+        }
+
+        queryRows = new int[NUMBER_OF_QUERIES];
+        queryCols = new int[NUMBER_OF_QUERIES];
+        for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+            queryRows[i] = random.nextInt(n) + 1;
+            queryCols[i] = random.nextInt(n) + 1;
+        }
+        rowMask = new long[(n + 63) >>> 6];
+    }
+
+    @Override
+    public void newGrid() {
+
+        // Drop the last grid first, so two grids are never live at once.
+        openGrid = null;
+        openGrid = new Percolation(gridWidth);
+        schedule.reset();
+        openRandom = new SplittableRandom(seed++);
+    }
+
+    @Override
+    public int openAll() {
+
+        while (schedule.hasNext()) {
+            int site = schedule.nextSite(openRandom);
+            openGrid.open(site / gridWidth + 1, site % gridWidth + 1);
+        }
+        return openGrid.numberOfOpenSites();
+    }
+
+    @Override
+    public boolean isFullNext() {
+
+        int query = nextQuery;
+        nextQuery = (query + 1) & (NUMBER_OF_QUERIES - 1);
+        return queryGrid.isFull(queryRows[query], queryCols[query]);
+    }
+
+    @Override
+    public long fullMaskNext() {
+
+        queryGrid.fullMask(nextRow, rowMask);
+        nextRow = nextRow == gridWidth ? 1 : nextRow + 1;
+        return rowMask[0];
+    }
+
+    @Override
+    public boolean percolates() {
+        return queryGrid.percolates();
+    }
+
+    @Override
+    public double runTrial() {
+
+        while (!openGrid.percolates()) {
+            int site = schedule.nextSite(openRandom);
+            openGrid.open(site / gridWidth + 1, site % gridWidth + 1);
+        }
+        return (double) openGrid.numberOfOpenSites() / (gridWidth * gridWidth);
+    }
+
+    @Override
+    public double runCampaign(int trials, int parallelism) {
+        return new PercolationStats(gridWidth, trials, seed++, parallelism).mean();
+    }
+
+}
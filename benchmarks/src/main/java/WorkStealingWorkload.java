@@ -0,0 +1,38 @@
+import deques.benchmarks.TaskDequeWorkload;
+
+/**
+ * Task deque workload on a {@link WorkStealingDeque}.
+ *
+ * @author Rabboni Rabi
+ */
+public class WorkStealingWorkload implements TaskDequeWorkload {
+
+    // Number of tasks the owner keeps in the deque before taking one back each step.
+    private static final int OWNER_BACKLOG = 64;
+    private static final int NUMBER_OF_TASKS = 1024;
+
+    private WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+    // Tasks allocated once, so the benchmark does not time boxing.
+    private Integer[] tasks = new Integer[NUMBER_OF_TASKS];
+    private int nextTask = 0;
+
+    public WorkStealingWorkload() {
+        for (int i = 0; i < NUMBER_OF_TASKS; i++) {
+            tasks[i] = i;
+        }
+    }
+
+    @Override
+    public Object ownerStep() {
+
+        deque.addLast(tasks[nextTask]);
+        nextTask = (nextTask + 1) & (NUMBER_OF_TASKS - 1);
+        return deque.size() > OWNER_BACKLOG ? deque.removeLast() : null;
+    }
+
+    @Override
+    public Object stealStep() {
+        return deque.steal();
+    }
+
+}
@@ -0,0 +1,61 @@
+package deques.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Throughput of a bounded buffer with producers adding tasks one at a time and
+ * consumers draining them in batches: {@code BoundedBlockingDeque} against
+ * {@link java.util.concurrent.LinkedBlockingDeque}. The numbers of producers and
+ * consumers default to 2 each and are set with {@code -tg <producers>,<consumers>}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockingBufferBenchmark {
+
+    @Param({"BoundedBlockingDequeWorkload", "LinkedBlockingDequeWorkload"})
+    private String buffer;
+
+    private BufferWorkload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = (BufferWorkload) Class.forName(buffer).getConstructor().newInstance();
+    }
+
+    @Benchmark
+    @Group("buffer")
+    @GroupThreads(2)
+    public boolean producer() throws InterruptedException {
+        return workload.produce();
+    }
+
+    @Benchmark
+    @Group("buffer")
+    @GroupThreads(2)
+    public int consumer() throws InterruptedException {
+        return workload.consume();
+    }
+
+}
@@ -0,0 +1,30 @@
+package deques.benchmarks;
+
+/**
+ * <p>
+ * A bounded buffer between producer and consumer threads. The buffers live
+ * in the default package, so they are driven through this interface by default
+ * package classes loaded by name.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public interface BufferWorkload {
+
+    /**
+     * Add a task at the back, waiting a short while for room.
+     *
+     * @return whether the task was added.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean produce() throws InterruptedException;
+
+    /**
+     * Move a batch of tasks from the front, waiting a short while for one if there are none.
+     *
+     * @return number of tasks moved.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    int consume() throws InterruptedException;
+
+}
@@ -0,0 +1,29 @@
+package deques.benchmarks;
+
+/**
+ * <p>
+ * A task deque shared by one owner thread and any number of thieves, as a
+ * scheduler uses it. The deques live in the default package, so they are driven
+ * through this interface by default package classes loaded by name.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public interface TaskDequeWorkload {
+
+    /**
+     * Add a task at the back, taking one back off once the deque holds enough.
+     * Called by the owner thread only.
+     *
+     * @return task taken back, or null.
+     */
+    Object ownerStep();
+
+    /**
+     * Steal a task from the front.
+     *
+     * @return task stolen, or null if the deque was empty.
+     */
+    Object stealStep();
+
+}
@@ -0,0 +1,61 @@
+package deques.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Throughput of a task deque with one owner thread adding and taking back
+ * tasks while thieves steal them: {@code WorkStealingDeque} against
+ * {@code Deque} behind a lock. The number of thieves defaults to 3 and is
+ * set with {@code -tg 1,<thieves>}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WorkStealingBenchmark {
+
+    @Param({"WorkStealingWorkload", "LockedDequeWorkload"})
+    private String deque;
+
+    private TaskDequeWorkload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = (TaskDequeWorkload) Class.forName(deque).getConstructor().newInstance();
+    }
+
+    @Benchmark
+    @Group("tasks")
+    @GroupThreads(1)
+    public Object owner() {
+        return workload.ownerStep();
+    }
+
+    @Benchmark
+    @Group("tasks")
+    @GroupThreads(3)
+    public Object thief() {
+        return workload.stealStep();
+    }
+
+}
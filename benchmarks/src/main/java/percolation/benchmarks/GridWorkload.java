@@ -0,0 +1,68 @@
+package percolation.benchmarks;
+
+/**
+ * <p>
+ * Operations the benchmarks time. The assignment classes live in the default
+ * package, which classes in a named package cannot refer to, so they are driven
+ * through this interface by {@code PercolationWorkload}, a default package class
+ * loaded by name.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public interface GridWorkload {
+
+    /**
+     * Start over on a new grid with every site blocked, and a new random
+     * order to open its sites in. Not part of what is timed.
+     */
+    void newGrid();
+
+    /**
+     * Open every site of the new grid, in the random order.
+     *
+     * @return number of open sites.
+     */
+    int openAll();
+
+    /**
+     * Ask whether the next of a set of random sites of a percolating grid is full.
+     *
+     * @return whether the site is full.
+     */
+    boolean isFullNext();
+
+    /**
+     * Write which sites of the next row of a percolating grid are full
+     * to a bitmap, taking the rows in turn.
+     *
+     * @return first word of the bitmap.
+     */
+    long fullMaskNext();
+
+    /**
+     * Ask whether a percolating grid percolates.
+     *
+     * @return true.
+     */
+    boolean percolates();
+
+    /**
+     * Open sites of the new grid in the random order until it percolates,
+     * the work of one trial of {@code PercolationStats}.
+     *
+     * @return fraction of sites open when the grid percolated.
+     */
+    double runTrial();
+
+    /**
+     * Run a whole {@code PercolationStats} campaign with a new seed, building
+     * its grids, opening schedules and thread pool.
+     *
+     * @param trials number of trials.
+     * @param parallelism number of threads to run the trials on.
+     * @return mean fraction of sites open when the grids percolated.
+     */
+    double runCampaign(int trials, int parallelism);
+
+}
@@ -0,0 +1,68 @@
+package percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmark of one site percolation trial of {@code LatticePercolation} on the
+ * simple cubic lattice with 500 sites a side, 125 million sites in all: the
+ * time to open sites in a random order until the grid percolates.
+ * </p>
+ * <p>
+ * The grid and the opening order are reset before each call, outside the
+ * timing. A trial takes tens of seconds, so each one is timed on its own.
+ * The grid and the order take about 1 GB.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class LatticeTrialBenchmark {
+
+    private static final String WORKLOAD_CLASS = "LatticePercolationWorkload";
+    private static final long SEED = 20240517L;
+
+    @Param({"SIMPLE_CUBIC"})
+    private String lattice;
+
+    @Param({"500"})
+    private int n;
+
+    private LatticeWorkload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = (LatticeWorkload) Class.forName(WORKLOAD_CLASS)
+                .getConstructor(String.class, int.class, boolean.class, long.class)
+                .newInstance(lattice, n, false, SEED);
+    }
+
+    @Setup(Level.Invocation)
+    public void newGrid() {
+        workload.newGrid();
+    }
+
+    @Benchmark
+    public double trial() {
+        return workload.runTrial();
+    }
+
+}
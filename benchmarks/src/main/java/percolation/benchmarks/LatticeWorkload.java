@@ -0,0 +1,28 @@
+package percolation.benchmarks;
+
+/**
+ * <p>
+ * Operations the lattice benchmarks time, driven through this interface by
+ * {@code LatticePercolationWorkload}, a default package class loaded by name,
+ * for the same reason as {@link GridWorkload}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+public interface LatticeWorkload {
+
+    /**
+     * Block every element of the grid again and start a new random
+     * order to open them in. Not part of what is timed.
+     */
+    void newGrid();
+
+    /**
+     * Open elements of the grid in the random order until it percolates,
+     * the work of one lattice trial of {@code PercolationStats}.
+     *
+     * @return fraction of elements open when the grid percolated.
+     */
+    double runTrial();
+
+}
@@ -0,0 +1,67 @@
+package percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmarks of the queries of {@code Percolation} on grids of width 100,
+ * 1,000 and 5,000: the latency of isFull(), fullMask() and percolates() on a
+ * percolating grid. {@link PercolationTrialBenchmark} times opening sites.
+ * </p>
+ * <p>
+ * Every workload is seeded, so two runs time the same sites in the same order.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PercolationBenchmark {
+
+    private static final String WORKLOAD_CLASS = "PercolationWorkload";
+    private static final long SEED = 20240517L;
+
+    @Param({"100", "1000", "5000"})
+    private int n;
+
+    private GridWorkload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = (GridWorkload) Class.forName(WORKLOAD_CLASS)
+                .getConstructor(int.class, long.class)
+                .newInstance(n, SEED);
+    }
+
+    @Benchmark
+    public boolean isFull() {
+        return workload.isFullNext();
+    }
+
+    @Benchmark
+    public long fullMask() {
+        return workload.fullMaskNext();
+    }
+
+    @Benchmark
+    public boolean percolates() {
+        return workload.percolates();
+    }
+
+}
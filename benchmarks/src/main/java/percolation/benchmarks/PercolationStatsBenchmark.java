@@ -0,0 +1,60 @@
+package percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmark of whole {@code PercolationStats} campaigns of 100 trials on grids
+ * of width 100 and 1,000, everything included: the thread pool, the opening
+ * schedules and a new grid for every trial. Starting the pool is shared by the
+ * hundred trials. The number of threads defaults to 1 and is set with
+ * {@code -p parallelism=<threads>}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PercolationStatsBenchmark {
+
+    private static final String WORKLOAD_CLASS = "PercolationWorkload";
+    private static final long SEED = 20240517L;
+    private static final int TRIALS = 100;
+
+    @Param({"100", "1000"})
+    private int n;
+
+    @Param({"1"})
+    private int parallelism;
+
+    private GridWorkload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = (GridWorkload) Class.forName(WORKLOAD_CLASS)
+                .getConstructor(int.class, long.class)
+                .newInstance(n, SEED);
+    }
+
+    @Benchmark
+    public double campaign() {
+        return workload.runCampaign(TRIALS, parallelism);
+    }
+
+}
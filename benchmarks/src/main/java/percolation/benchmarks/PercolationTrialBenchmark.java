@@ -0,0 +1,72 @@
+package percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmarks of opening the sites of a new {@code Percolation} grid of width
+ * 1,000 and 5,000: the time to open every site, and the time of the opening a
+ * trial of {@code PercolationStats} does, until the grid percolates.
+ * </p>
+ * <p>
+ * The grid is built and the opening order reset before each call, outside the
+ * timing, so only the union-find work is timed. Each call takes tens of
+ * milliseconds or more, so the few microseconds JMH spends around the setup of
+ * each call do not show. Smaller grids are timed a hundred trials at a time by
+ * {@link PercolationStatsBenchmark}.
+ * </p>
+ *
+ * @author Rabboni Rabi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PercolationTrialBenchmark {
+
+    private static final String WORKLOAD_CLASS = "PercolationWorkload";
+    private static final long SEED = 20240517L;
+
+    @Param({"1000", "5000"})
+    private int n;
+
+    private GridWorkload workload;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        workload = (GridWorkload) Class.forName(WORKLOAD_CLASS)
+                .getConstructor(int.class, long.class)
+                .newInstance(n, SEED);
+    }
+
+    @Setup(Level.Invocation)
+    public void newGrid() {
+        workload.newGrid();
+    }
+
+    @Benchmark
+    public int openAll() {
+        return workload.openAll();
+    }
+
+    @Benchmark
+    public double trial() {
+        return workload.runTrial();
+    }
+
+}